@@ -0,0 +1,16 @@
+package com.aiproject.week3_tasks.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a controller method, or every method of a controller, under admission control for the
+ * given operation class. A method-level annotation overrides the type-level one.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Admission {
+    OperationClass value();
+}
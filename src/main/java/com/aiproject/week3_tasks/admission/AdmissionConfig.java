@@ -0,0 +1,35 @@
+package com.aiproject.week3_tasks.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers admission control for the {@code /api/**} endpoints. Disable with
+ * {@code admission.enabled=false}.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+@ConditionalOnProperty(prefix = "admission", name = "enabled", matchIfMissing = true)
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private AdmissionProperties properties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public AdmissionControl admissionControl() {
+        return new AdmissionControl(properties, meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(admissionControl(), properties)).addPathPatterns("/api/**");
+    }
+}
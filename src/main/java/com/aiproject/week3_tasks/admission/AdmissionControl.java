@@ -0,0 +1,51 @@
+package com.aiproject.week3_tasks.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One bulkhead per {@link OperationClass} plus the per-client rate limiter, with their queue
+ * depths, active counts and rejection counts published as metrics:
+ * <ul>
+ *   <li>{@code admission.active{class}} - requests holding a permit</li>
+ *   <li>{@code admission.queue.depth{class}} - requests waiting for a permit</li>
+ *   <li>{@code admission.rejected{class, reason=capacity}} - requests turned away by a bulkhead</li>
+ *   <li>{@code admission.rejected{reason=rate_limit}} - requests turned away by the rate limiter</li>
+ * </ul>
+ */
+public class AdmissionControl {
+
+    private final Map<OperationClass, Bulkhead> bulkheads = new EnumMap<>(OperationClass.class);
+    private final TokenBucketRateLimiter rateLimiter;
+
+    public AdmissionControl(AdmissionProperties properties, MeterRegistry registry) {
+        for (OperationClass operationClass : OperationClass.values()) {
+            AdmissionProperties.Limit limit = properties.limitFor(operationClass);
+            Bulkhead bulkhead = new Bulkhead(limit.getMaxConcurrent(), limit.getMaxQueued(), limit.getMaxWaitMillis());
+            bulkheads.put(operationClass, bulkhead);
+            String tag = operationClass.name().toLowerCase();
+            Gauge.builder("admission.active", bulkhead, Bulkhead::getActiveCount)
+                    .tag("class", tag).register(registry);
+            Gauge.builder("admission.queue.depth", bulkhead, Bulkhead::getQueueDepth)
+                    .tag("class", tag).register(registry);
+            FunctionCounter.builder("admission.rejected", bulkhead, Bulkhead::getRejectedCount)
+                    .tag("class", tag).tag("reason", "capacity").register(registry);
+        }
+        AdmissionProperties.RateLimit rateLimit = properties.getRateLimit();
+        rateLimiter = new TokenBucketRateLimiter(rateLimit.getPermitsPerSecond(), rateLimit.getBurst(), rateLimit.getMaxClients());
+        FunctionCounter.builder("admission.rejected", rateLimiter, TokenBucketRateLimiter::getRejectedCount)
+                .tag("class", "all").tag("reason", "rate_limit").register(registry);
+    }
+
+    public Bulkhead bulkhead(OperationClass operationClass) {
+        return bulkheads.get(operationClass);
+    }
+
+    public TokenBucketRateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+}
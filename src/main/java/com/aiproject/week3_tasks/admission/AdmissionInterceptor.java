@@ -0,0 +1,101 @@
+package com.aiproject.week3_tasks.admission;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link AdmissionControl} to handlers annotated with {@link Admission}.
+ * <p>
+ * A client over its rate limit gets {@code 429 Too Many Requests}; a request that finds its
+ * bulkhead and queue full gets {@code 503 Service Unavailable}. Both carry {@code Retry-After}.
+ * The permit is held until the request completes, including the async part of streaming
+ * responses.
+ * </p>
+ * <p>
+ * The rate limit is kept per authenticated principal, or else per remote address. The
+ * {@code admission.client-id-header} is only believed on requests from one of
+ * {@code admission.trusted-proxies}, which are expected to set it themselves; anyone else could
+ * pick a fresh value per request and never be limited.
+ * </p>
+ */
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final AdmissionControl admissionControl;
+    private final AdmissionProperties properties;
+
+    public AdmissionInterceptor(AdmissionControl admissionControl, AdmissionProperties properties) {
+        this.admissionControl = admissionControl;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        Admission admission = method.getMethodAnnotation(Admission.class);
+        if (admission == null) {
+            admission = method.getBeanType().getAnnotation(Admission.class);
+        }
+        if (admission == null) {
+            return true;
+        }
+
+        long waitNanos = admissionControl.rateLimiter().tryAcquire(clientId(request));
+        if (waitNanos > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS,
+                    Math.max(1, (int) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1))));
+            return false;
+        }
+        Bulkhead bulkhead = admissionControl.bulkhead(admission.value());
+        if (!bulkhead.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, properties.getRetryAfterSeconds());
+            return false;
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, bulkhead);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // Not called when the initial dispatch goes async; the async dispatch releases instead.
+        Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (permit instanceof Bulkhead bulkhead) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            bulkhead.release();
+        }
+    }
+
+    private String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "principal:" + principal.getName();
+        }
+        String remoteAddress = request.getRemoteAddr();
+        if (properties.getTrustedProxies().contains(remoteAddress)) {
+            String clientId = request.getHeader(properties.getClientIdHeader());
+            if (clientId != null && !clientId.isBlank()) {
+                return "client:" + clientId;
+            }
+        }
+        return remoteAddress;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, int retryAfterSeconds) throws Exception {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(status == HttpStatus.TOO_MANY_REQUESTS ? "Rate limit exceeded" : "Server busy");
+    }
+}
@@ -0,0 +1,91 @@
+package com.aiproject.week3_tasks.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admission control settings, bound from {@code admission.*}.
+ *
+ * <pre>
+ * admission.bulk.max-concurrent=2
+ * admission.bulk.max-queued=4
+ * admission.bulk.max-wait-millis=1000
+ * admission.rate-limit.permits-per-second=50
+ * admission.rate-limit.burst=100
+ * admission.rate-limit.max-clients=10000
+ * admission.trusted-proxies=10.0.0.5,10.0.0.6   # may set admission.client-id-header
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+    private String clientIdHeader = "X-Client-Id";
+    private List<String> trustedProxies = new ArrayList<>();
+    private int retryAfterSeconds = 1;
+    private final Limit pointRead = new Limit(64, 256, 100);
+    private final Limit write = new Limit(16, 64, 500);
+    private final Limit bulk = new Limit(2, 4, 1000);
+    private final Limit analytics = new Limit(2, 8, 1000);
+    private final RateLimit rateLimit = new RateLimit();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public String getClientIdHeader() { return clientIdHeader; }
+    public void setClientIdHeader(String clientIdHeader) { this.clientIdHeader = clientIdHeader; }
+    public List<String> getTrustedProxies() { return trustedProxies; }
+    public void setTrustedProxies(List<String> trustedProxies) { this.trustedProxies = trustedProxies; }
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+    public void setRetryAfterSeconds(int retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    public Limit getPointRead() { return pointRead; }
+    public Limit getWrite() { return write; }
+    public Limit getBulk() { return bulk; }
+    public Limit getAnalytics() { return analytics; }
+    public RateLimit getRateLimit() { return rateLimit; }
+
+    public Limit limitFor(OperationClass operationClass) {
+        return switch (operationClass) {
+            case POINT_READ -> pointRead;
+            case WRITE -> write;
+            case BULK -> bulk;
+            case ANALYTICS -> analytics;
+        };
+    }
+
+    public static class Limit {
+        private int maxConcurrent;
+        private int maxQueued;
+        private long maxWaitMillis;
+
+        public Limit() {
+        }
+
+        Limit(int maxConcurrent, int maxQueued, long maxWaitMillis) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+        public int getMaxQueued() { return maxQueued; }
+        public void setMaxQueued(int maxQueued) { this.maxQueued = maxQueued; }
+        public long getMaxWaitMillis() { return maxWaitMillis; }
+        public void setMaxWaitMillis(long maxWaitMillis) { this.maxWaitMillis = maxWaitMillis; }
+    }
+
+    public static class RateLimit {
+        private double permitsPerSecond = 50;
+        private int burst = 100;
+        private int maxClients = 10_000;
+
+        public double getPermitsPerSecond() { return permitsPerSecond; }
+        public void setPermitsPerSecond(double permitsPerSecond) { this.permitsPerSecond = permitsPerSecond; }
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+        public int getMaxClients() { return maxClients; }
+        public void setMaxClients(int maxClients) { this.maxClients = maxClients; }
+    }
+}
@@ -0,0 +1,18 @@
+package com.aiproject.week3_tasks.admission;
+
+/**
+ * Cost classes of user operations. Each class gets its own bulkhead, so a burst of one kind
+ * of work cannot take the capacity another kind needs.
+ * <ul>
+ *   <li>{@code POINT_READ} - single-user lookups</li>
+ *   <li>{@code WRITE} - single-user mutations</li>
+ *   <li>{@code BULK} - whole-table reads and writes such as exports, imports and batch updates</li>
+ *   <li>{@code ANALYTICS} - counts and reports</li>
+ * </ul>
+ */
+public enum OperationClass {
+    POINT_READ,
+    WRITE,
+    BULK,
+    ANALYTICS
+}
@@ -0,0 +1,115 @@
+package com.aiproject.week3_tasks.admission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets. Each client may make {@code burst} requests at once and then
+ * {@code permitsPerSecond} on average.
+ * <p>
+ * Once {@code maxClients} are tracked, buckets of clients that have been idle long enough to be
+ * full again are dropped. If every client is still active, the least recently seen tenth is
+ * dropped instead, so memory stays bounded under many distinct clients; concurrent first
+ * requests can overshoot the limit by at most the number of request threads.
+ * </p>
+ */
+public final class TokenBucketRateLimiter {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final int maxClients;
+    private final LongSupplier nanoClock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        this(permitsPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, int maxClients, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Invalid rate limit");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Take one token from the client's bucket.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+     */
+    public long tryAcquire(String clientId) {
+        long now = nanoClock.getAsLong();
+        Bucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(clientId, id -> new Bucket(burst, now));
+        }
+        long waitNanos = bucket.tryTake(now);
+        if (waitNanos > 0) {
+            rejected.increment();
+        }
+        return waitNanos;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    private void evict(long now) {
+        long refillNanos = (long) (burst / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        buckets.values().removeIf(bucket -> bucket.idleSince(now) >= refillNanos);
+        if (buckets.size() < maxClients) {
+            return;
+        }
+        // A tenth at a time, so a stream of new clients does not sort the map on every request.
+        // Idle times are read once up front; they keep changing while the map is in use.
+        int count = Math.max(buckets.size() - maxClients + 1, maxClients / 10);
+        List<Map.Entry<String, Long>> idle = new ArrayList<>(buckets.size());
+        buckets.forEach((clientId, bucket) -> idle.add(Map.entry(clientId, bucket.idleSince(now))));
+        idle.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (Map.Entry<String, Long> entry : idle.subList(0, Math.min(count, idle.size()))) {
+            buckets.remove(entry.getKey());
+        }
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long lastRefill;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        synchronized long tryTake(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized long idleSince(long now) {
+            return now - lastRefill;
+        }
+    }
+}
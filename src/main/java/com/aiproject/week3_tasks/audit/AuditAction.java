@@ -0,0 +1,58 @@
+package com.aiproject.week3_tasks.audit;
+
+/**
+ * Operations recorded in the audit journal. Each has a fixed one-byte code in the journal
+ * format, so constants may be added but existing codes must never change.
+ * <p>
+ * Mutations are always recorded; reads are diagnostics and only sampled, see
+ * {@link AuditTrail#read}.
+ * </p>
+ */
+public enum AuditAction {
+    USER_CREATED(1, false),
+    USERS_CREATED(2, false),
+    EMAIL_UPDATED(3, false),
+    NAME_UPDATED(4, false),
+    USER_DEACTIVATED(5, false),
+    USER_REACTIVATED(6, false),
+    USER_DELETED(7, false),
+    DOMAIN_DEACTIVATED(8, false),
+    LEGACY_IMPORTED(9, false),
+    USER_READ(64, true),
+    USERS_LISTED(65, true),
+    USERS_SEARCHED(66, true),
+    USERS_EXPORTED(67, true),
+    USERS_COUNTED(68, true),
+    REPORT_GENERATED(69, true);
+
+    private static final AuditAction[] BY_CODE = new AuditAction[256];
+
+    static {
+        for (AuditAction action : values()) {
+            BY_CODE[action.code & 0xFF] = action;
+        }
+    }
+
+    private final byte code;
+    private final boolean read;
+
+    AuditAction(int code, boolean read) {
+        this.code = (byte) code;
+        this.read = read;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    /**
+     * @return the action with this journal code, or null if the code is unknown
+     */
+    public static AuditAction fromCode(byte code) {
+        return BY_CODE[code & 0xFF];
+    }
+}
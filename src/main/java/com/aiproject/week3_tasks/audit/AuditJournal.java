@@ -0,0 +1,206 @@
+package com.aiproject.week3_tasks.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary audit journal, written through memory-mapped segment files.
+ * <p>
+ * Segments are named {@code audit-<index>.jnl} and mapped at their full size up front, so the
+ * unwritten tail reads as zeros. A segment starts with a {@value #SEGMENT_HEADER_SIZE}-byte
+ * header (magic, version, reserved, segment index), followed by records:
+ * </p>
+ * <pre>
+ * u16 length | u8 action | u8 reserved | i64 epoch millis | i32 count | i32 elapsed micros
+ *            | u16 subject length | subject (UTF-8)
+ * </pre>
+ * A record's length is written last, so a reader stops at the first zero length and never
+ * sees half a record. Only the newest {@code maxSegments} segments are kept. A new segment
+ * is started on every open rather than appending to an old one.
+ */
+final class AuditJournal implements Closeable {
+
+    static final int MAGIC = 0x41554454;
+    static final short VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 16;
+    static final int RECORD_HEADER_SIZE = 22;
+    static final int MAX_SUBJECT_BYTES = 1024;
+    static final int MIN_SEGMENT_SIZE = 4096;
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".jnl";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segmentIndex;
+
+    private AuditJournal(Path directory, int segmentSize, int maxSegments) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    static AuditJournal open(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Audit segments must be at least " + MIN_SEGMENT_SIZE + " bytes");
+        }
+        Files.createDirectories(directory);
+        AuditJournal journal = new AuditJournal(directory, segmentSize, Math.max(1, maxSegments));
+        List<Path> existing = segments(directory);
+        journal.segmentIndex = existing.isEmpty() ? 0 : indexOf(existing.get(existing.size() - 1));
+        journal.roll();
+        return journal;
+    }
+
+    void append(long epochMillis, AuditAction action, String subject, int count, int elapsedMicros) throws IOException {
+        byte[] subjectBytes = encode(subject);
+        int length = RECORD_HEADER_SIZE + subjectBytes.length;
+        if (buffer.remaining() < length) {
+            roll();
+        }
+        int start = buffer.position();
+        buffer.position(start + 2);
+        buffer.put(action.code())
+                .put((byte) 0)
+                .putLong(epochMillis)
+                .putInt(count)
+                .putInt(elapsedMicros)
+                .putShort((short) subjectBytes.length)
+                .put(subjectBytes);
+        buffer.putShort(start, (short) length);
+    }
+
+    /**
+     * Write the mapped pages of the current segment to disk.
+     */
+    void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            buffer = null;
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        segmentIndex++;
+        Path file = directory.resolve(String.format(PREFIX + "%012d" + SUFFIX, segmentIndex));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(segmentIndex);
+
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private static byte[] encode(String subject) {
+        if (subject == null) {
+            return new byte[0];
+        }
+        byte[] bytes = subject.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_SUBJECT_BYTES) {
+            return bytes;
+        }
+        // Cut on a character boundary so the stored prefix still decodes cleanly.
+        int end = MAX_SUBJECT_BYTES;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        byte[] truncated = new byte[end];
+        System.arraycopy(bytes, 0, truncated, 0, end);
+        return truncated;
+    }
+
+    /**
+     * The journal segments in {@code directory}, oldest first.
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .toList());
+            segments.sort((a, b) -> Long.compare(indexOf(a), indexOf(b)));
+            return segments;
+        }
+    }
+
+    private static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Read every complete record of one segment, in write order. Safe to call while the
+     * segment is still being written.
+     *
+     * @throws IOException if the file is not an audit journal segment
+     */
+    static void read(Path segment, Consumer<AuditRecord> consumer) throws IOException {
+        ByteBuffer data;
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+            data = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        }
+        if (data.remaining() < SEGMENT_HEADER_SIZE || data.getInt() != MAGIC) {
+            throw new IOException("Not an audit journal segment: " + segment);
+        }
+        short version = data.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported audit journal version " + version + " in " + segment);
+        }
+        data.position(SEGMENT_HEADER_SIZE);
+        while (data.remaining() >= 2) {
+            int start = data.position();
+            int length = Short.toUnsignedInt(data.getShort());
+            if (length < RECORD_HEADER_SIZE || length > data.remaining() + 2) {
+                return;
+            }
+            try {
+                AuditAction action = AuditAction.fromCode(data.get());
+                data.get();
+                long epochMillis = data.getLong();
+                int count = data.getInt();
+                int elapsedMicros = data.getInt();
+                byte[] subject = new byte[Short.toUnsignedInt(data.getShort())];
+                data.get(subject);
+                if (action != null) {
+                    consumer.accept(new AuditRecord(Instant.ofEpochMilli(epochMillis), action,
+                            new String(subject, StandardCharsets.UTF_8), count, elapsedMicros));
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Corrupt audit record at offset " + start + " in " + segment, e);
+            }
+            data.position(start + length);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.aiproject.week3_tasks.audit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Offline reader for audit journals. Prints one tab-separated line per record: timestamp,
+ * action, subject, count and, for sampled reads, elapsed microseconds.
+ * <pre>
+ * java -cp target/week3-tasks-0.0.1-SNAPSHOT.jar -Dloader.main=com.aiproject.week3_tasks.audit.AuditJournalReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     [--action=EMAIL_UPDATED] [--subject=jdoe] [--since=2026-01-01T00:00:00Z] [--until=...] &lt;directory-or-segment&gt;...
+ * </pre>
+ * Directories are read segment by segment, oldest first. The journal of a running
+ * application can be read too; records still being written are left out.
+ */
+public final class AuditJournalReader {
+
+    private AuditJournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Predicate<AuditRecord> filter = record -> true;
+        List<Path> inputs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--action=")) {
+                AuditAction action = AuditAction.valueOf(arg.substring("--action=".length()));
+                filter = filter.and(record -> record.action() == action);
+            } else if (arg.startsWith("--subject=")) {
+                String subject = arg.substring("--subject=".length());
+                filter = filter.and(record -> record.subject().equals(subject));
+            } else if (arg.startsWith("--since=")) {
+                Instant since = Instant.parse(arg.substring("--since=".length()));
+                filter = filter.and(record -> !record.timestamp().isBefore(since));
+            } else if (arg.startsWith("--until=")) {
+                Instant until = Instant.parse(arg.substring("--until=".length()));
+                filter = filter.and(record -> record.timestamp().isBefore(until));
+            } else if (arg.startsWith("--")) {
+                System.err.println("Unknown option: " + arg);
+                System.exit(2);
+            } else {
+                inputs.add(Path.of(arg));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: AuditJournalReader [--action=ACTION] [--subject=SUBJECT] "
+                    + "[--since=INSTANT] [--until=INSTANT] <directory-or-segment>...");
+            System.exit(2);
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        Predicate<AuditRecord> matches = filter;
+        try {
+            read(inputs, record -> {
+                if (matches.test(record)) {
+                    out.println(format(record));
+                }
+            });
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Read every record of the given segments and journal directories, in write order.
+     */
+    public static void read(List<Path> inputs, Consumer<AuditRecord> consumer) throws IOException {
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                for (Path segment : AuditJournal.segments(input)) {
+                    AuditJournal.read(segment, consumer);
+                }
+            } else {
+                AuditJournal.read(input, consumer);
+            }
+        }
+    }
+
+    static String format(AuditRecord record) {
+        StringBuilder line = new StringBuilder(64)
+                .append(record.timestamp()).append('\t')
+                .append(record.action()).append('\t')
+                .append(record.subject()).append('\t')
+                .append(record.count());
+        if (record.action().isRead()) {
+            line.append('\t').append(record.elapsedMicros()).append("us");
+        }
+        return line.toString();
+    }
+}
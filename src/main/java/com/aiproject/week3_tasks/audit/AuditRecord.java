@@ -0,0 +1,13 @@
+package com.aiproject.week3_tasks.audit;
+
+import java.time.Instant;
+
+/**
+ * One audit journal entry.
+ *
+ * @param subject       the username, domain or other argument the operation was called with
+ * @param count         the number of users affected or returned
+ * @param elapsedMicros how long a sampled read took; 0 for mutations
+ */
+public record AuditRecord(Instant timestamp, AuditAction action, String subject, int count, int elapsedMicros) {
+}
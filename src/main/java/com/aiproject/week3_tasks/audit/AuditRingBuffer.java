@@ -0,0 +1,115 @@
+package com.aiproject.week3_tasks.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of audit entries with many producers and one consumer.
+ * <p>
+ * Entries are stored field by field in preallocated arrays, so offering one allocates
+ * nothing. Each slot carries a sequence number: a producer claims a position with one CAS,
+ * fills the slot and then publishes it by setting the slot's sequence; the consumer takes
+ * slots in order as they are published. When the buffer is full, {@link #offer} drops the
+ * entry instead of waiting.
+ * </p>
+ */
+final class AuditRingBuffer {
+
+    /**
+     * Receives drained entries.
+     */
+    interface Sink {
+        void accept(long epochMillis, AuditAction action, String subject, int count, int elapsedMicros);
+    }
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] timestamps;
+    private final AuditAction[] actions;
+    private final String[] subjects;
+    private final int[] counts;
+    private final int[] elapsed;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        mask = capacity - 1;
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        timestamps = new long[capacity];
+        actions = new AuditAction[capacity];
+        subjects = new String[capacity];
+        counts = new int[capacity];
+        elapsed = new int[capacity];
+    }
+
+    /**
+     * @return false if the buffer was full and the entry was dropped
+     */
+    boolean offer(long epochMillis, AuditAction action, String subject, int count, int elapsedMicros) {
+        long position = tail.get();
+        while (true) {
+            long available = sequences.get((int) position & mask) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        int slot = (int) position & mask;
+        timestamps[slot] = epochMillis;
+        actions[slot] = action;
+        subjects[slot] = subject;
+        counts[slot] = count;
+        elapsed[slot] = elapsedMicros;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Hand every published entry to {@code sink}, in the order their positions were claimed.
+     * Only one thread may drain.
+     *
+     * @return the number of entries drained
+     */
+    int drain(Sink sink) {
+        long position = head;
+        int drained = 0;
+        while (true) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            String subject = subjects[slot];
+            subjects[slot] = null;
+            sink.accept(timestamps[slot], actions[slot], subject, counts[slot], elapsed[slot]);
+            sequences.lazySet(slot, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long size() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,193 @@
+package com.aiproject.week3_tasks.audit;
+
+import com.aiproject.week3_tasks.admission.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records user operations in the binary {@link AuditJournal}, off the calling thread.
+ *
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>{@link #mutation} puts the entry in a lock-free {@link AuditRingBuffer} and returns; a
+ *       writer thread drains the buffer into the journal and forces it to disk every
+ *       {@code audit.journal.flush-interval}. If the writer falls
+ *       {@code audit.ring-buffer.capacity} entries behind, new entries are dropped and counted
+ *       rather than slowing callers down.</li>
+ *   <li>{@link #read} records a read as a diagnostic with its latency, but only for a
+ *       {@code audit.reads.sample-rate} fraction of calls and at most
+ *       {@code audit.reads.max-per-second} per action.</li>
+ *   <li>The journal is written to {@code audit.journal.directory}, by default
+ *       {@code ~/.week3-tasks/audit-journal}. With the directory empty, each mutation is logged
+ *       as one INFO line instead and reads are not recorded.</li>
+ * </ul>
+ * Journals are read offline with {@link AuditJournalReader}.
+ *
+ * <b>Metrics:</b>
+ * <ul>
+ *   <li>{@code audit.records.written} - entries written to the journal</li>
+ *   <li>{@code audit.records.dropped} - entries dropped because the buffer was full or the
+ *       journal could not be written</li>
+ *   <li>{@code audit.reads.suppressed} - sampled reads over the rate limit</li>
+ *   <li>{@code audit.ring-buffer.backlog} - entries waiting for the writer</li>
+ * </ul>
+ */
+@Component
+public class AuditTrail {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditTrail.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${audit.journal.directory:${user.home}/.week3-tasks/audit-journal}")
+    private String directory = "";
+    @Value("${audit.journal.segment-size-mb:64}")
+    private int segmentSizeMb = 64;
+    @Value("${audit.journal.max-segments:32}")
+    private int maxSegments = 32;
+    @Value("${audit.journal.flush-interval:PT1S}")
+    private Duration flushInterval = Duration.ofSeconds(1);
+    @Value("${audit.ring-buffer.capacity:65536}")
+    private int capacity = 65536;
+    @Value("${audit.reads.sample-rate:0.01}")
+    private double readSampleRate = 0.01;
+    @Value("${audit.reads.max-per-second:100}")
+    private double readsPerSecond = 100;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private volatile AuditRingBuffer ring;
+    private volatile boolean running;
+    private AuditJournal journal;
+    private TokenBucketRateLimiter readLimiter;
+    private Thread writer;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (directory.isBlank()) {
+            logger.info("Audit journal disabled; logging mutations instead");
+            return;
+        }
+        journal = AuditJournal.open(Path.of(directory), segmentSizeMb * 1024 * 1024, maxSegments);
+        readLimiter = new TokenBucketRateLimiter(readsPerSecond, (int) Math.max(1, readsPerSecond),
+                AuditAction.values().length);
+        AuditRingBuffer buffer = new AuditRingBuffer(capacity);
+
+        FunctionCounter.builder("audit.records.written", written, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("audit.records.dropped", this, trail -> buffer.getDroppedCount() + trail.writeFailures.get())
+                .register(meterRegistry);
+        FunctionCounter.builder("audit.reads.suppressed", readLimiter, TokenBucketRateLimiter::getRejectedCount)
+                .register(meterRegistry);
+        Gauge.builder("audit.ring-buffer.backlog", buffer, AuditRingBuffer::size).register(meterRegistry);
+
+        running = true;
+        writer = new Thread(() -> run(buffer), "audit-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        ring = buffer;
+        logger.info("Audit journal writing to {}", directory);
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        ring = null;
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        // Closing unmaps the segment, which the writer must no longer touch.
+        if (writer.isAlive()) {
+            logger.warn("Audit journal writer did not stop in time; leaving the journal open");
+            return;
+        }
+        journal.close();
+    }
+
+    /**
+     * Record a change to one user.
+     */
+    public void mutation(AuditAction action, String subject) {
+        mutation(action, subject, 1);
+    }
+
+    /**
+     * Record a change to {@code count} users, e.g. a batch or a domain-wide update.
+     */
+    public void mutation(AuditAction action, String subject, int count) {
+        AuditRingBuffer buffer = ring;
+        if (buffer != null) {
+            buffer.offer(System.currentTimeMillis(), action, subject, count, 0);
+        } else if (journal == null) {
+            logger.info("{} {} ({} users)", action, subject, count);
+        }
+    }
+
+    /**
+     * Maybe record a read that started at {@code startedNanos} ({@link System#nanoTime()}) and
+     * returned {@code count} users. Unsampled calls cost one random number.
+     */
+    public void read(AuditAction action, String subject, int count, long startedNanos) {
+        AuditRingBuffer buffer = ring;
+        if (buffer == null || ThreadLocalRandom.current().nextDouble() >= readSampleRate) {
+            return;
+        }
+        if (readLimiter.tryAcquire(action.name()) != 0) {
+            return;
+        }
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedNanos);
+        buffer.offer(System.currentTimeMillis(), action, subject, count, (int) Math.min(elapsedMicros, Integer.MAX_VALUE));
+    }
+
+    private void run(AuditRingBuffer buffer) {
+        AuditRingBuffer.Sink sink = (epochMillis, action, subject, count, elapsedMicros) -> {
+            try {
+                journal.append(epochMillis, action, subject, count, elapsedMicros);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                if (writeFailures.getAndIncrement() == 0) {
+                    logger.error("Could not write audit journal; dropping entries", e);
+                }
+            }
+        };
+        long flushNanos = flushInterval.toNanos();
+        long nextFlush = System.nanoTime() + flushNanos;
+        boolean dirty = false;
+        while (true) {
+            int drained = buffer.drain(sink);
+            dirty |= drained > 0;
+            if (dirty && System.nanoTime() - nextFlush >= 0) {
+                journal.force();
+                dirty = false;
+                nextFlush = System.nanoTime() + flushNanos;
+            }
+            if (drained == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // Entries offered just before shutdown.
+        buffer.drain(sink);
+        journal.force();
+    }
+}
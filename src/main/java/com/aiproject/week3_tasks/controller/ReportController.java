@@ -0,0 +1,75 @@
+package com.aiproject.week3_tasks.controller;
+
+import com.aiproject.week3_tasks.admission.Admission;
+import com.aiproject.week3_tasks.admission.OperationClass;
+import com.aiproject.week3_tasks.model.ReportJobStatus;
+import com.aiproject.week3_tasks.model.ReportSnapshot;
+import com.aiproject.week3_tasks.model.ReportType;
+import com.aiproject.week3_tasks.service.ReportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST endpoints for asynchronous report jobs.
+ * <ul>
+ *   <li>{@code POST /api/reports/jobs?type=COMPREHENSIVE&daysRecent=30} - submit; 202 with the job, or 200 if a
+ *       current snapshot already answers it</li>
+ *   <li>{@code GET /api/reports/jobs/{jobId}} - poll a job</li>
+ *   <li>{@code GET /api/reports/latest?type=COMPREHENSIVE&daysRecent=30} - last snapshot, possibly stale
+ *       ({@code X-Report-Stale}); 202 while the first one is generated</li>
+ * </ul>
+ * A {@code daysRecent} outside 1 to {@value ReportJobService#MAX_DAYS_RECENT} is answered with 400.
+ */
+@RestController
+@RequestMapping("/api/reports")
+@Admission(OperationClass.ANALYTICS)
+public class ReportController {
+
+    @Autowired
+    @Lazy
+    private ReportJobService reportJobService;
+
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobStatus> submit(@RequestParam ReportType type,
+                                                  @RequestParam(defaultValue = "30") int daysRecent) {
+        ReportJobStatus status = reportJobService.submit(type, daysRecent);
+        ResponseEntity.BodyBuilder response = status.state() == ReportJobStatus.State.RUNNING
+                ? ResponseEntity.accepted()
+                : ResponseEntity.ok();
+        return response.location(URI.create("/api/reports/jobs/" + status.jobId())).body(status);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Admission(OperationClass.POINT_READ)
+    public ResponseEntity<ReportJobStatus> getJob(@PathVariable String jobId) {
+        return reportJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/latest")
+    @Admission(OperationClass.POINT_READ)
+    public ResponseEntity<ReportSnapshot> latest(@RequestParam ReportType type,
+                                                 @RequestParam(defaultValue = "30") int daysRecent) {
+        Optional<ReportSnapshot> snapshot = reportJobService.getLatest(type, daysRecent);
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.accepted().build();
+        }
+        return ResponseEntity.ok()
+                .header("X-Report-Stale", String.valueOf(reportJobService.isStale(snapshot.get())))
+                .header("X-Report-Data-Version", String.valueOf(snapshot.get().dataVersion()))
+                .body(snapshot.get());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidParameters(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+    }
+}
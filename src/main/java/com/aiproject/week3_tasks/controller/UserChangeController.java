@@ -0,0 +1,218 @@
+package com.aiproject.week3_tasks.controller;
+
+import com.aiproject.week3_tasks.model.UserChange;
+import com.aiproject.week3_tasks.model.UserChangePage;
+import com.aiproject.week3_tasks.service.UserChangeRelay;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The user change feed, resumable from any sequence number still retained.
+ * <ul>
+ *   <li>{@code GET /api/user-changes?since=0&limit=500&waitSeconds=30} - long poll; answers at
+ *       once if there are changes after {@code since}, otherwise when one is published or after
+ *       {@code waitSeconds} with an empty page. Pass {@code nextSince} as the next
+ *       {@code since}.</li>
+ *   <li>{@code GET /api/user-changes/stream?since=0} - server-sent events, one per change, with
+ *       the sequence number as event id; a reconnecting client resumes from
+ *       {@code Last-Event-ID}.</li>
+ * </ul>
+ * Neither endpoint is under admission control: both hold the request open while idle and do no
+ * work until a change is published, so a bulkhead slot would only block other callers.
+ * <p>
+ * A send to a stream blocks while its client is not reading, so each stream is drained on its
+ * own thread from a pool that grows to {@code user-changes.max-streaming-threads} and shrinks
+ * when idle; a stream that finds the pool full is closed and its client resumes on reconnect.
+ * Long polls complete on a separate pool, which only runs queries.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/user-changes")
+public class UserChangeController {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeController.class);
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_WAIT_SECONDS = 60;
+    private static final long STREAM_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    @Autowired
+    private UserChangeRelay relay;
+
+    @Value("${user-changes.max-streaming-threads:256}")
+    private int maxStreamingThreads = 256;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private ExecutorService pollExecutor;
+    private ExecutorService streamExecutor;
+
+    @PostConstruct
+    void start() {
+        pollExecutor = Executors.newFixedThreadPool(2, this::newThread);
+        streamExecutor = new ThreadPoolExecutor(0, maxStreamingThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), this::newThread);
+    }
+
+    @PreDestroy
+    void stop() {
+        pollExecutor.shutdownNow();
+        streamExecutor.shutdownNow();
+    }
+
+    private Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "user-change-feed-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @GetMapping
+    public DeferredResult<UserChangePage> changes(@RequestParam(defaultValue = "0") long since,
+                                                  @RequestParam(defaultValue = "500") int limit,
+                                                  @RequestParam(defaultValue = "30") int waitSeconds) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        int wait = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+        DeferredResult<UserChangePage> result = new DeferredResult<>(wait * 1000L, new UserChangePage(List.of(), since));
+        if (wait == 0 || relay.getPublishedSequence() > since) {
+            result.setResult(relay.changesSince(since, pageSize));
+            return result;
+        }
+        CompletableFuture<Void> published = relay.whenPublishedAfter(since);
+        published.thenRunAsync(() -> result.setResult(relay.changesSince(since, pageSize)), pollExecutor)
+                .exceptionally(e -> {
+                    result.setErrorResult(e);
+                    return null;
+                });
+        result.onCompletion(() -> published.cancel(false));
+        return result;
+    }
+
+    @GetMapping("/stream")
+    public SseEmitter stream(@RequestParam(required = false) Long since,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        SseEmitter emitter = newEmitter();
+        ChangeStream stream = new ChangeStream(emitter, lastEventId != null ? lastEventId : since != null ? since : 0);
+        UserChangeRelay.Subscription subscription = relay.subscribe(stream);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        stream.schedule();
+        return emitter;
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(STREAM_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * One SSE client. Published batches are queued and only schedule a drain, so a slow client
+     * never holds up the relay thread. A client that is caught up is sent the published batches
+     * as they are; the table is only read for a backlog: on connect, for a gap between batches,
+     * or after batches were dropped because more than {@value #MAX_LIMIT} changes were queued.
+     * So a client that falls behind catches up instead of losing changes.
+     */
+    private final class ChangeStream implements Consumer<List<UserChange>> {
+        private final SseEmitter emitter;
+        private final Queue<List<UserChange>> published = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queuedChanges = new AtomicInteger();
+        private final AtomicBoolean behind = new AtomicBoolean(true);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private long lastSent;
+        private volatile boolean closed;
+
+        ChangeStream(SseEmitter emitter, long since) {
+            this.emitter = emitter;
+            this.lastSent = since;
+        }
+
+        @Override
+        public void accept(List<UserChange> batch) {
+            if (queuedChanges.addAndGet(batch.size()) <= MAX_LIMIT) {
+                published.add(batch);
+            } else {
+                queuedChanges.addAndGet(-batch.size());
+                behind.set(true);
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                streamExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                closed = true;
+                logger.warn("No thread free for a user change stream; closing it");
+                emitter.complete();
+            }
+        }
+
+        // Synchronized so a drain scheduled while another is still sending waits its turn.
+        private synchronized void drain() {
+            scheduled.set(false);
+            if (closed) {
+                return;
+            }
+            try {
+                // The backlog first: on connect it holds everything before the queued batches.
+                if (behind.getAndSet(false)) {
+                    sendBacklog();
+                }
+                List<UserChange> batch;
+                while ((batch = published.poll()) != null) {
+                    queuedChanges.addAndGet(-batch.size());
+                    for (UserChange change : batch) {
+                        if (change.sequence() > lastSent + 1) {
+                            sendBacklog();
+                        }
+                        if (change.sequence() > lastSent) {
+                            send(change);
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                logger.debug("User change stream closed", e);
+                emitter.completeWithError(e);
+            } catch (RuntimeException e) {
+                closed = true;
+                logger.warn("User change stream failed", e);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void sendBacklog() throws IOException {
+            UserChangePage page;
+            do {
+                page = relay.changesSince(lastSent, MAX_LIMIT);
+                for (UserChange change : page.changes()) {
+                    send(change);
+                }
+                lastSent = Math.max(lastSent, page.nextSince());
+            } while (page.changes().size() == MAX_LIMIT);
+        }
+
+        private void send(UserChange change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(change.sequence()))
+                    .name(change.type().name())
+                    .data(change));
+            lastSent = change.sequence();
+        }
+    }
+}
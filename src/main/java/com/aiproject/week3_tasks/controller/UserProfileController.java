@@ -0,0 +1,125 @@
+package com.aiproject.week3_tasks.controller;
+
+import com.aiproject.week3_tasks.admission.Admission;
+import com.aiproject.week3_tasks.admission.OperationClass;
+import com.aiproject.week3_tasks.model.ExportFormat;
+import com.aiproject.week3_tasks.model.UserCreationRequest;
+import com.aiproject.week3_tasks.model.UserCreationResult;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.service.UserExportService;
+import com.aiproject.week3_tasks.service.UserProfileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST endpoints for user profiles under {@code /api/users}. Every endpoint is classified for
+ * admission control by what it costs: single-user reads and writes, whole-table operations
+ * and analytics each get their own concurrency limit.
+ */
+@RestController
+@RequestMapping("/api/users")
+public class UserProfileController {
+
+    @Autowired
+    private UserProfileService userProfileService;
+    @Autowired
+    private UserExportService userExportService;
+
+    @GetMapping("/{username}")
+    @Admission(OperationClass.POINT_READ)
+    public UserProfile getUser(@PathVariable String username) {
+        return userProfileService.getUser(username);
+    }
+
+    @GetMapping
+    @Admission(OperationClass.BULK)
+    public List<UserProfile> listAllUsers() {
+        return userProfileService.listAllUsers();
+    }
+
+    @PostMapping
+    @Admission(OperationClass.WRITE)
+    public ResponseEntity<UserProfile> createUser(@RequestBody UserCreationRequest request) {
+        UserProfile user = userProfileService.createUser(
+                request.username(), request.email(), request.firstName(), request.lastName());
+        return ResponseEntity.created(URI.create("/api/users/" + user.getUsername())).body(user);
+    }
+
+    @PostMapping("/batch")
+    @Admission(OperationClass.BULK)
+    public List<UserCreationResult> createUsers(@RequestBody List<UserCreationRequest> requests) {
+        return userProfileService.createUsers(requests);
+    }
+
+    @PutMapping("/{username}/email")
+    @Admission(OperationClass.WRITE)
+    public UserProfile updateEmail(@PathVariable String username, @RequestParam String email) {
+        return userProfileService.updateEmail(username, email);
+    }
+
+    @PutMapping("/{username}/name")
+    @Admission(OperationClass.WRITE)
+    public UserProfile updateName(@PathVariable String username,
+                                  @RequestParam(required = false) String firstName,
+                                  @RequestParam(required = false) String lastName) {
+        return userProfileService.updateName(username, firstName, lastName);
+    }
+
+    @PostMapping("/{username}/deactivate")
+    @Admission(OperationClass.WRITE)
+    public ResponseEntity<Void> deactivateUser(@PathVariable String username) {
+        userProfileService.deactivateUser(username);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{username}/reactivate")
+    @Admission(OperationClass.WRITE)
+    public ResponseEntity<Void> reactivateUser(@PathVariable String username) {
+        userProfileService.reactivateUser(username);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{username}")
+    @Admission(OperationClass.WRITE)
+    public ResponseEntity<Void> deleteUser(@PathVariable String username) {
+        userProfileService.deleteUser(username);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/deactivate-by-domain")
+    @Admission(OperationClass.BULK)
+    public Map<String, Integer> deactivateUsersByDomain(@RequestParam String domain) {
+        return Map.of("deactivated", userProfileService.deactivateUsersByDomain(domain));
+    }
+
+    @GetMapping("/export")
+    @Admission(OperationClass.BULK)
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "CSV") ExportFormat format) {
+        StreamingResponseBody body = out -> userExportService.export(format, out);
+        return ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV ? MediaType.valueOf("text/csv") : MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/stats/domains")
+    @Admission(OperationClass.ANALYTICS)
+    public Map<String, Long> getUserCountByDomain() {
+        return userProfileService.getUserCountByDomain();
+    }
+
+    @GetMapping("/stats/status")
+    @Admission(OperationClass.ANALYTICS)
+    public Map<String, Long> countUsersByStatus() {
+        return Map.of("active", userProfileService.countActiveUsers(),
+                "inactive", userProfileService.countInactiveUsers());
+    }
+}
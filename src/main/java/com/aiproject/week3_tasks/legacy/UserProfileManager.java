@@ -1,23 +1,145 @@
 package com.aiproject.week3_tasks.legacy;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
+/**
+ * In-memory store of legacy user profiles (username to email).
+ * <p>
+ * By default nothing survives a restart. When {@code legacy.persistence.directory} is set, every
+ * change is appended to a write-ahead log before it is applied, and the state is compacted into
+ * a snapshot every {@code legacy.persistence.snapshot-interval}; see {@link UserProfileStore}.
+ * Changing methods then return only once the change is durable. Concurrent changes share one
+ * fsync (group commit), so throughput grows with the number of writers.
+ * </p>
+ * <p>
+ * The manager is created on first use, so recovering a large store does not delay startup.
+ * </p>
+ */
 @Component
+@Lazy
 public class UserProfileManager {
-    private final Map<String, String> userProfiles = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(UserProfileManager.class);
 
-    public boolean addUser(String username, String email) {
-        if (username == null || username.isEmpty() || email == null || email.isEmpty()) {
-            return false;
+    @Value("${legacy.persistence.directory:}")
+    private String persistenceDirectory = "";
+    @Value("${legacy.persistence.snapshot-interval:PT5M}")
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+    private Map<String, String> userProfiles = new ConcurrentHashMap<>();
+    private final Object compactionLock = new Object();
+    // Written under this manager's lock, read without it by the compactor and durability waits.
+    private volatile UserProfileStore store;
+    private ScheduledExecutorService compactor;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!persistenceDirectory.isBlank()) {
+            enablePersistence(Path.of(persistenceDirectory), snapshotInterval);
+        }
+    }
+
+    /**
+     * Load the users persisted in {@code directory} and log every later change there. Must be
+     * called before the manager is used.
+     */
+    public synchronized void enablePersistence(Path directory, Duration snapshotInterval) throws IOException {
+        if (store != null) {
+            throw new IllegalStateException("Persistence is already enabled");
+        }
+        long started = System.nanoTime();
+        UserProfileStore.Recovery recovery = new UserProfileStore.Recovery();
+        store = UserProfileStore.open(directory, recovery);
+        userProfiles = recovery.users;
+        logger.info("Recovered {} legacy users ({} from snapshot, {} log records) in {} ms",
+                userProfiles.size(), recovery.fromSnapshot, recovery.replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "legacy-user-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = snapshotInterval.toMillis();
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                UserProfileStore current = store;
+                if (current != null && current.hasChangesSinceSnapshot()) {
+                    compact();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Legacy user snapshot failed", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write a snapshot of the current state and drop the log it replaces. Changes are blocked
+     * only while the state is copied and the log cut, not while the old log is forced or the
+     * snapshot is written.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            UserProfileStore current;
+            Map<String, String> copy;
+            long generation;
+            synchronized (this) {
+                current = store;
+                if (current == null) {
+                    return;
+                }
+                copy = new HashMap<>(userProfiles);
+                generation = current.startLogRoll();
+            }
+            current.finishLogRoll();
+            current.writeSnapshot(copy, generation);
+            logger.info("Wrote legacy user snapshot with {} users", copy.size());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdownNow();
         }
-        if (userProfiles.containsKey(username)) {
-            return false;
+        synchronized (this) {
+            if (store != null) {
+                store.close();
+                store = null;
+            }
         }
-        userProfiles.put(username, email);
+    }
+
+    public boolean addUser(String username, String email) {
+        long sequence;
+        synchronized (this) {
+            if (username == null || username.isEmpty() || email == null || email.isEmpty()) {
+                return false;
+            }
+            if (userProfiles.containsKey(username)) {
+                return false;
+            }
+            sequence = log(WriteAheadLog.ADD, username, email);
+            userProfiles.put(username, email);
+        }
+        awaitDurable(sequence);
         return true;
     }
 
@@ -26,18 +148,28 @@ public class UserProfileManager {
     }
 
     public boolean updateEmail(String username, String newEmail) {
-        if (!userProfiles.containsKey(username) || newEmail == null || newEmail.isEmpty()) {
-            return false;
+        long sequence;
+        synchronized (this) {
+            if (!userProfiles.containsKey(username) || newEmail == null || newEmail.isEmpty()) {
+                return false;
+            }
+            sequence = log(WriteAheadLog.UPDATE_EMAIL, username, newEmail);
+            userProfiles.put(username, newEmail);
         }
-        userProfiles.put(username, newEmail);
+        awaitDurable(sequence);
         return true;
     }
 
     public boolean removeUser(String username) {
-        if (!userProfiles.containsKey(username)) {
-            return false;
+        long sequence;
+        synchronized (this) {
+            if (!userProfiles.containsKey(username)) {
+                return false;
+            }
+            sequence = log(WriteAheadLog.REMOVE, username, null);
+            userProfiles.remove(username);
         }
-        userProfiles.remove(username);
+        awaitDurable(sequence);
         return true;
     }
 
@@ -48,4 +180,29 @@ public class UserProfileManager {
     public Set<String> getAllUsernames() {
         return userProfiles.keySet();
     }
-} 
\ No newline at end of file
+
+    // Logged before the map is changed so a failed append leaves no trace. The change is
+    // visible to readers slightly before it is durable; the caller waits for durability.
+    private long log(byte op, String username, String email) {
+        if (store == null) {
+            return 0;
+        }
+        try {
+            return store.append(op, username, email);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not log legacy user change", e);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        UserProfileStore current = store;
+        if (current == null || sequence == 0) {
+            return;
+        }
+        try {
+            current.awaitDurable(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist legacy user change", e);
+        }
+    }
+}
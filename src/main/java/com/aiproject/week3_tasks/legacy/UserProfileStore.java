@@ -0,0 +1,260 @@
+package com.aiproject.week3_tasks.legacy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk state of a {@link UserProfileManager}: a compacted snapshot plus write-ahead logs.
+ *
+ * <b>Directory layout:</b>
+ * <pre>
+ * snapshot.dat            - every user as of the start of log generation G
+ * wal-G.log, wal-G+1.log  - changes since, one {@link WriteAheadLog} per generation
+ * </pre>
+ *
+ * <b>Snapshot layout:</b>
+ * <pre>
+ * header   : int magic 'UPMS', int version, long generation, int count, int crc32c,
+ *            int segmentCount
+ * segments : int offset per segment of up to 65536 entries
+ * entries  : string username, string email   (see {@link WriteAheadLog} for strings)
+ * the checksum covers everything after the header
+ * </pre>
+ * <p>
+ * Snapshots are written to a temporary file through a memory mapping and moved into place
+ * atomically, so a crash mid-compaction leaves the previous snapshot and its logs intact.
+ * Recovery maps the snapshot and decodes its segments in parallel straight into a pre-sized map,
+ * then replays the logs from its generation onwards.
+ * </p>
+ */
+final class UserProfileStore implements Closeable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x55504D53;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 28;
+    private static final int SEGMENT_ENTRIES = 1 << 16;
+
+    private final Path directory;
+    private WriteAheadLog log;
+    private long generation;
+    // Only changed under the manager's lock; volatile so the compaction timer sees it.
+    private volatile long changesSinceRoll;
+
+    private UserProfileStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open the store in {@code directory}, creating it if needed, and load its users into
+     * {@code recovery}.
+     */
+    static UserProfileStore open(Path directory, Recovery recovery) throws IOException {
+        Files.createDirectories(directory);
+        UserProfileStore store = new UserProfileStore(directory);
+        long snapshotGeneration = store.loadSnapshot(recovery);
+        long lastGeneration = snapshotGeneration;
+        for (long logGeneration : store.logGenerations()) {
+            if (logGeneration < snapshotGeneration) {
+                Files.deleteIfExists(store.logFile(logGeneration));
+                continue;
+            }
+            recovery.replayed += WriteAheadLog.replay(store.logFile(logGeneration), entry -> apply(recovery.users, entry));
+            lastGeneration = logGeneration;
+        }
+        store.generation = lastGeneration;
+        store.log = new WriteAheadLog(store.logFile(lastGeneration));
+        return store;
+    }
+
+    long append(byte op, String username, String email) throws IOException {
+        long sequence = log.append(op, username, email);
+        changesSinceRoll++;
+        return sequence;
+    }
+
+    void awaitDurable(long sequence) throws IOException {
+        log.awaitDurable(sequence);
+    }
+
+    boolean hasChangesSinceSnapshot() {
+        return changesSinceRoll > 0;
+    }
+
+    /**
+     * Start a new log generation after the changes appended so far. Must be called while no
+     * changes are being appended; a snapshot of the state at this moment is then written with
+     * {@link #writeSnapshot} once {@link #finishLogRoll} returns. No I/O is done here.
+     *
+     * @return the generation the snapshot must be labelled with
+     */
+    long startLogRoll() throws IOException {
+        log.startRoll(logFile(generation + 1));
+        generation++;
+        changesSinceRoll = 0;
+        return generation;
+    }
+
+    /**
+     * Block until the previous log generation is complete and durable.
+     */
+    void finishLogRoll() throws IOException {
+        log.finishRoll();
+    }
+
+    /**
+     * Write {@code users} as the snapshot for {@code snapshotGeneration} and delete the logs
+     * it supersedes.
+     */
+    void writeSnapshot(Map<String, String> users, long snapshotGeneration) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(users.size() * 2);
+        int segments = (users.size() + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES;
+        long size = SNAPSHOT_HEADER_SIZE + 4L * segments;
+        for (Map.Entry<String, String> user : users.entrySet()) {
+            byte[] username = user.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] email = user.getValue().getBytes(StandardCharsets.UTF_8);
+            encoded.add(username);
+            encoded.add(email);
+            size += 4 + username.length + email.length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Legacy user snapshot exceeds 2 GB");
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.position(SNAPSHOT_HEADER_SIZE + 4 * segments);
+            for (int i = 0; i < encoded.size(); i += 2) {
+                if (i / 2 % SEGMENT_ENTRIES == 0) {
+                    buffer.putInt(SNAPSHOT_HEADER_SIZE + 4 * (i / 2 / SEGMENT_ENTRIES), buffer.position());
+                }
+                WriteAheadLog.putString(buffer, encoded.get(i));
+                WriteAheadLog.putString(buffer, encoded.get(i + 1));
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(SNAPSHOT_HEADER_SIZE, (int) size - SNAPSHOT_HEADER_SIZE));
+            buffer.putInt(0, SNAPSHOT_MAGIC);
+            buffer.putInt(4, SNAPSHOT_VERSION);
+            buffer.putLong(8, snapshotGeneration);
+            buffer.putInt(16, users.size());
+            buffer.putInt(20, (int) crc.getValue());
+            buffer.putInt(24, segments);
+            buffer.force();
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (long logGeneration : logGenerations()) {
+            if (logGeneration < snapshotGeneration) {
+                Files.deleteIfExists(logFile(logGeneration));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * @return the generation of the first log not covered by the snapshot
+     */
+    private long loadSnapshot(Recovery recovery) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SNAPSHOT_HEADER_SIZE) {
+                throw new IOException("Corrupt legacy user snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != SNAPSHOT_MAGIC || buffer.getInt(4) != SNAPSHOT_VERSION) {
+                throw new IOException("Not a legacy user snapshot (version " + SNAPSHOT_VERSION + "): " + file);
+            }
+            long snapshotGeneration = buffer.getLong(8);
+            int count = buffer.getInt(16);
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(SNAPSHOT_HEADER_SIZE, (int) size - SNAPSHOT_HEADER_SIZE));
+            if ((int) crc.getValue() != buffer.getInt(20)) {
+                throw new IOException("Corrupt legacy user snapshot, checksum mismatch: " + file);
+            }
+
+            int segments = buffer.getInt(24);
+            if (segments != (count + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES) {
+                throw new IOException("Corrupt legacy user snapshot, bad segment table: " + file);
+            }
+
+            Map<String, String> users = new ConcurrentHashMap<>(Math.max(16, count * 4 / 3 + 1));
+            IntStream.range(0, segments).parallel().forEach(segment -> {
+                ByteBuffer entries = buffer.duplicate();
+                entries.position(buffer.getInt(SNAPSHOT_HEADER_SIZE + 4 * segment));
+                int entryCount = Math.min(SEGMENT_ENTRIES, count - segment * SEGMENT_ENTRIES);
+                byte[] scratch = new byte[0xFFFF];
+                for (int i = 0; i < entryCount; i++) {
+                    users.put(readString(entries, scratch), readString(entries, scratch));
+                }
+            });
+            recovery.users = users;
+            recovery.fromSnapshot = count;
+            return snapshotGeneration;
+        }
+    }
+
+    // Decodes through one reusable array instead of allocating a copy per string.
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path logFile(long logGeneration) {
+        return directory.resolve(String.format("%s%012d%s", LOG_PREFIX, logGeneration, LOG_SUFFIX));
+    }
+
+    private static void apply(Map<String, String> users, WriteAheadLog.Entry entry) {
+        switch (entry.op()) {
+            case WriteAheadLog.ADD, WriteAheadLog.UPDATE_EMAIL -> users.put(entry.username(), entry.email());
+            case WriteAheadLog.REMOVE -> users.remove(entry.username());
+            default -> throw new IllegalStateException("Unknown log operation " + entry.op());
+        }
+    }
+
+    /**
+     * Users loaded by {@link #open}, with counts for logging.
+     */
+    static final class Recovery {
+        Map<String, String> users = new ConcurrentHashMap<>();
+        long fromSnapshot;
+        long replayed;
+    }
+}
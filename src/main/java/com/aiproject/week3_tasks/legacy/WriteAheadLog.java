@@ -0,0 +1,349 @@
+package com.aiproject.week3_tasks.legacy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of {@link UserProfileManager} changes with group commit.
+ *
+ * <b>Record layout:</b>
+ * <pre>
+ * int length       - bytes after the checksum
+ * int crc32c       - over those bytes
+ * byte op          - ADD, UPDATE_EMAIL or REMOVE
+ * string username
+ * string email     - ADD and UPDATE_EMAIL only
+ * string          : unsigned short byteLength, UTF-8 bytes
+ * </pre>
+ * <p>
+ * {@link #append} only copies the record into an in-memory buffer and returns its sequence
+ * number. {@link #awaitDurable} makes it durable: the first waiting thread writes everything
+ * buffered so far and forces the channel once, and every thread whose record was in that write
+ * returns without an fsync of its own. While a batch is written, appends go to a second
+ * buffer; the written buffer becomes the spare again only once its write is over. A failed
+ * write fails the log: later appends and waits throw.
+ * </p>
+ * <p>
+ * {@link #startRoll} marks where the log continues in the next file without any I/O; the next
+ * batch written ends the current file there, forces it and writes the rest to the new one.
+ * </p>
+ */
+final class WriteAheadLog implements Closeable {
+
+    static final byte ADD = 1;
+    static final byte UPDATE_EMAIL = 2;
+    static final byte REMOVE = 3;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Object lock = new Object();
+    private FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean flushing;
+    private IOException failure;
+    // Set by startRoll until the batch holding the cut has been written.
+    private Path rollTo;
+    private int rollPosition;
+
+    /**
+     * Open {@code file} for appending, creating it if needed. Records must already have been
+     * replayed and any torn tail truncated with {@link #replay}.
+     */
+    WriteAheadLog(Path file) throws IOException {
+        channel = open(file);
+    }
+
+    /**
+     * Buffer a change and return its sequence number for {@link #awaitDurable}.
+     */
+    long append(byte op, String username, String email) throws IOException {
+        byte[] user = username.getBytes(StandardCharsets.UTF_8);
+        byte[] mail = email != null ? email.getBytes(StandardCharsets.UTF_8) : null;
+        // Checked before anything is buffered: a record abandoned half-way would end the log.
+        checkLength(user);
+        if (mail != null) {
+            checkLength(mail);
+        }
+        int bodySize = 1 + 2 + user.length + (mail != null ? 2 + mail.length : 0);
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log is unavailable", failure);
+            }
+            if (pending.remaining() < HEADER_SIZE + bodySize) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER_SIZE + bodySize));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            int start = pending.position();
+            pending.position(start + HEADER_SIZE);
+            pending.put(op);
+            putString(pending, user);
+            if (mail != null) {
+                putString(pending, mail);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(pending.array(), start + HEADER_SIZE, bodySize);
+            pending.putInt(start, bodySize);
+            pending.putInt(start + 4, (int) crc.getValue());
+            return ++appendedSequence;
+        }
+    }
+
+    /**
+     * Block until the record with this sequence number has been forced to disk.
+     */
+    void awaitDurable(long sequence) throws IOException {
+        synchronized (lock) {
+            while (true) {
+                if (durableSequence >= sequence) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new IOException("Write-ahead log failed", failure);
+                }
+                if (!flushing) {
+                    break;
+                }
+                waitForFlush();
+            }
+            // Become the leader: write everything buffered so far, including records appended
+            // by threads still waiting.
+            flushing = true;
+        }
+        try {
+            awaitBuffered();
+        } finally {
+            synchronized (lock) {
+                flushing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Continue the log in {@code next} after the records appended so far. Only the cut is
+     * recorded; the files are switched by the next write, or by {@link #finishRoll}.
+     */
+    void startRoll(Path next) throws IOException {
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log is unavailable", failure);
+            }
+            if (rollTo != null) {
+                throw new IllegalStateException("A roll is already in progress");
+            }
+            rollTo = next;
+            rollPosition = pending.position();
+        }
+    }
+
+    /**
+     * Block until the roll begun by {@link #startRoll} is done: every record before the cut is
+     * forced to the previous file and later records go to the new one.
+     */
+    void finishRoll() throws IOException {
+        synchronized (lock) {
+            while (true) {
+                if (rollTo == null) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new IOException("Write-ahead log failed", failure);
+                }
+                if (!flushing) {
+                    break;
+                }
+                waitForFlush();
+            }
+            flushing = true;
+        }
+        try {
+            awaitBuffered();
+        } finally {
+            synchronized (lock) {
+                flushing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            while (flushing) {
+                waitForFlush();
+            }
+            flushing = true;
+        }
+        try {
+            awaitBuffered();
+        } finally {
+            channel.close();
+            synchronized (lock) {
+                if (failure == null) {
+                    failure = new IOException("Write-ahead log is closed");
+                }
+                flushing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Write and force everything buffered while this thread holds the {@code flushing} flag.
+     * Appends continue into the spare buffer meanwhile.
+     */
+    private void awaitBuffered() throws IOException {
+        ByteBuffer batch;
+        long batchEnd;
+        Path next;
+        int cut;
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+            batch = pending;
+            batchEnd = appendedSequence;
+            next = rollTo;
+            cut = rollPosition;
+            pending = spare;
+            spare = null;
+        }
+        boolean written = false;
+        try {
+            batch.flip();
+            if (next != null) {
+                int end = batch.limit();
+                batch.limit(cut);
+                writeAndForce(batch);
+                channel.close();
+                channel = open(next);
+                batch.limit(end);
+            }
+            writeAndForce(batch);
+            written = true;
+        } catch (IOException | RuntimeException e) {
+            synchronized (lock) {
+                failure = e instanceof IOException io ? io : new IOException(e);
+            }
+            throw e;
+        } finally {
+            synchronized (lock) {
+                batch.clear();
+                spare = batch;
+                if (written) {
+                    durableSequence = batchEnd;
+                    if (next != null) {
+                        rollTo = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeAndForce(ByteBuffer batch) throws IOException {
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        channel.force(false);
+    }
+
+    private void waitForFlush() throws IOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the write-ahead log");
+        }
+    }
+
+    /**
+     * Apply every intact record in {@code file} in order. A record cut short or failing its
+     * checksum ends the log; it and anything after it are truncated away.
+     *
+     * @return the number of records applied
+     */
+    static long replay(Path file, Consumer<Entry> consumer) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            if (size == 0) {
+                return 0;
+            }
+            // Read rather than mapped: the tail is small after compaction, and a mapped file
+            // cannot be truncated on every platform.
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(size));
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            CRC32C crc = new CRC32C();
+            long count = 0;
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    buffer.position(start);
+                    break;
+                }
+                byte op = body.get();
+                String username = getString(body);
+                String email = op == REMOVE ? null : getString(body);
+                consumer.accept(new Entry(op, username, email));
+                buffer.position(buffer.position() + length);
+                count++;
+            }
+            if (buffer.position() < size) {
+                in.truncate(buffer.position());
+            }
+            return count;
+        }
+    }
+
+    record Entry(byte op, String username, String email) { }
+
+    private static FileChannel open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    static void putString(ByteBuffer buffer, byte[] bytes) {
+        checkLength(bytes);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static void checkLength(byte[] bytes) {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Value too long for the legacy store");
+        }
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.aiproject.week3_tasks.model;
+
+import java.util.List;
+
+/**
+ * Summary of a CSV import.
+ *
+ * @param rows       number of data rows read (the header is not counted)
+ * @param created    rows inserted as new users
+ * @param duplicates rows skipped because the username was already taken
+ * @param invalid    rows rejected by parsing or validation
+ * @param failed     rows of batches whose insert failed
+ * @param errors     per-line reasons for skipped, rejected and failed rows, in line order;
+ *                   capped, so it may hold fewer entries than
+ *                   {@code duplicates + invalid + failed}
+ */
+public record CsvImportReport(long rows, long created, long duplicates, long invalid, long failed,
+                              List<LineError> errors) {
+
+    /**
+     * @param line    1-based line number in the file, counting the header as line 1
+     * @param message reason the line was not imported
+     */
+    public record LineError(long line, String message) { }
+}
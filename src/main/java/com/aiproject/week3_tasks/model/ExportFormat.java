@@ -0,0 +1,30 @@
+package com.aiproject.week3_tasks.model;
+
+/**
+ * Output formats for user data exports.
+ * <ul>
+ *   <li>{@code CSV} - the plain-text format of {@code exportToCsv}</li>
+ *   <li>{@code BINARY} - length-prefixed records with dictionary-encoded email domains</li>
+ * </ul>
+ * The {@code _GZIP} variants compress the same stream on the fly.
+ */
+public enum ExportFormat {
+    CSV(false, false, "csv"),
+    CSV_GZIP(false, true, "csv.gz"),
+    BINARY(true, false, "upb"),
+    BINARY_GZIP(true, true, "upb.gz");
+
+    private final boolean binary;
+    private final boolean gzip;
+    private final String extension;
+
+    ExportFormat(boolean binary, boolean gzip, String extension) {
+        this.binary = binary;
+        this.gzip = gzip;
+        this.extension = extension;
+    }
+
+    public boolean isBinary() { return binary; }
+    public boolean isGzip() { return gzip; }
+    public String getExtension() { return extension; }
+}
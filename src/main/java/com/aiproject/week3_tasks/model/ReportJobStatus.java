@@ -0,0 +1,14 @@
+package com.aiproject.week3_tasks.model;
+
+/**
+ * Client-facing state of a report job.
+ *
+ * @param jobId    id to poll the job with
+ * @param state    where the job is in its lifecycle
+ * @param snapshot the generated report once {@code state} is {@code DONE}, otherwise {@code null}
+ * @param error    failure message once {@code state} is {@code FAILED}, otherwise {@code null}
+ */
+public record ReportJobStatus(String jobId, State state, ReportSnapshot snapshot, String error) {
+
+    public enum State { RUNNING, DONE, FAILED }
+}
@@ -0,0 +1,16 @@
+package com.aiproject.week3_tasks.model;
+
+import java.time.Instant;
+
+/**
+ * An immutable, generated report.
+ *
+ * @param type        which report this is
+ * @param daysRecent  the "recent users" window the report was generated with
+ * @param dataVersion user data version the report reflects; a snapshot is stale once the
+ *                    current version has moved past it
+ * @param generatedAt when generation finished
+ * @param content     the formatted report
+ */
+public record ReportSnapshot(ReportType type, int daysRecent, long dataVersion, Instant generatedAt, String content) {
+}
@@ -0,0 +1,13 @@
+package com.aiproject.week3_tasks.model;
+
+/**
+ * Reports that can be generated asynchronously through report jobs.
+ * <ul>
+ *   <li>{@code COMPREHENSIVE} - {@code generateComprehensiveUserReport(daysRecent)}</li>
+ *   <li>{@code ANALYTICS} - {@code processAndAnalyzeAllUserData()}, which ignores {@code daysRecent}</li>
+ * </ul>
+ */
+public enum ReportType {
+    COMPREHENSIVE,
+    ANALYTICS
+}
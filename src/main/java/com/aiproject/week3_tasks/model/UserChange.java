@@ -0,0 +1,12 @@
+package com.aiproject.week3_tasks.model;
+
+import java.time.Instant;
+
+/**
+ * One entry of the user change feed: the user as it was right after the change. Only
+ * {@code username} is set for {@link UserChangeType#DELETED}. {@code sequence} increases by one
+ * per change, in publication order, and is what consumers resume from.
+ */
+public record UserChange(long sequence, UserChangeType type, String username, String email,
+                         String firstName, String lastName, Boolean active, Instant occurredAt) {
+}
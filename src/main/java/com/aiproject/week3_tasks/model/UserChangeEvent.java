@@ -0,0 +1,94 @@
+package com.aiproject.week3_tasks.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.time.Instant;
+
+/**
+ * Row of the {@code user_outbox} table, written in the same transaction as the change it
+ * describes. {@code feedSequence} is null until the relay publishes the event.
+ * <p>
+ * When users are sharded, every shard has its own outbox and the relay forwards events from
+ * the other shards into shard 0's, where the feed is numbered. A forwarded copy remembers its
+ * origin in {@code sourceShard}/{@code sourceId}, so an event is forwarded at most once.
+ * </p>
+ */
+@Entity
+@Table(name = "user_outbox", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_outbox_feed_sequence", columnNames = "feed_sequence"),
+        @UniqueConstraint(name = "uk_user_outbox_source", columnNames = {"source_shard", "source_id"})
+})
+public class UserChangeEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_seq")
+    @SequenceGenerator(name = "user_outbox_seq", sequenceName = "user_outbox_seq", allocationSize = 50)
+    private Long id;
+    @Column(name = "feed_sequence")
+    private Long feedSequence;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32, nullable = false)
+    private UserChangeType type;
+    private String username;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private Boolean active;
+    @Column(name = "source_shard")
+    private Integer sourceShard;
+    @Column(name = "source_id")
+    private Long sourceId;
+    // Set by the database when the row is inserted. The relay publishes in this order, so two
+    // changes to one user, which are serialized by the row lock, are published in order.
+    @Column(name = "created_at", insertable = false, updatable = false,
+            columnDefinition = "timestamp(6) with time zone not null default clock_timestamp()")
+    private Instant createdAt;
+
+    protected UserChangeEvent() {
+    }
+
+    public UserChangeEvent(UserChangeType type, UserProfile user) {
+        this.type = type;
+        this.username = user.getUsername();
+        if (type != UserChangeType.DELETED) {
+            this.email = user.getEmail();
+            this.firstName = user.getFirstName();
+            this.lastName = user.getLastName();
+            this.active = user.isActive();
+        }
+    }
+
+    /**
+     * A copy of {@code event}, read from {@code shard}'s outbox, to be published from shard 0.
+     */
+    public static UserChangeEvent forwardedFrom(int shard, UserChangeEvent event) {
+        UserChangeEvent copy = new UserChangeEvent();
+        copy.type = event.type;
+        copy.username = event.username;
+        copy.email = event.email;
+        copy.firstName = event.firstName;
+        copy.lastName = event.lastName;
+        copy.active = event.active;
+        copy.sourceShard = shard;
+        copy.sourceId = event.id;
+        return copy;
+    }
+
+    public Long getId() { return id; }
+    public Long getFeedSequence() { return feedSequence; }
+    public UserChangeType getType() { return type; }
+    public String getUsername() { return username; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    public UserChange toChange() {
+        return new UserChange(feedSequence, type, username, email, firstName, lastName, active, createdAt);
+    }
+}
@@ -0,0 +1,9 @@
+package com.aiproject.week3_tasks.model;
+
+import java.util.List;
+
+/**
+ * Changes after a sequence number; {@code nextSince} is the value to pass on the next request.
+ */
+public record UserChangePage(List<UserChange> changes, long nextSince) {
+}
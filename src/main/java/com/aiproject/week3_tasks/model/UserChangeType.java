@@ -0,0 +1,13 @@
+package com.aiproject.week3_tasks.model;
+
+/**
+ * Kind of change recorded in the user change feed.
+ */
+public enum UserChangeType {
+    CREATED,
+    EMAIL_UPDATED,
+    NAME_UPDATED,
+    ACTIVATED,
+    DEACTIVATED,
+    DELETED
+}
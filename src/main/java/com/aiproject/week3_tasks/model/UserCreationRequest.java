@@ -0,0 +1,11 @@
+package com.aiproject.week3_tasks.model;
+
+/**
+ * A single row of a batch user creation request.
+ */
+public record UserCreationRequest(String username, String email, String firstName, String lastName) {
+
+    public UserProfile toUserProfile() {
+        return new UserProfile(username, email, firstName, lastName);
+    }
+}
@@ -0,0 +1,35 @@
+package com.aiproject.week3_tasks.model;
+
+/**
+ * Outcome of one row of a batch user creation request.
+ *
+ * @param index    position of the row in the submitted batch
+ * @param username username of the row, as submitted
+ * @param status   whether the row was created, skipped as a duplicate, rejected, or failed to be
+ *                 inserted
+ * @param message  reason for a non-created row, {@code null} otherwise
+ */
+public record UserCreationResult(int index, String username, Status status, String message) {
+
+    public enum Status { CREATED, DUPLICATE, INVALID, FAILED }
+
+    public static UserCreationResult created(int index, String username) {
+        return new UserCreationResult(index, username, Status.CREATED, null);
+    }
+
+    public static UserCreationResult duplicate(int index, String username) {
+        return duplicate(index, username, "Username already exists");
+    }
+
+    public static UserCreationResult duplicate(int index, String username, String message) {
+        return new UserCreationResult(index, username, Status.DUPLICATE, message);
+    }
+
+    public static UserCreationResult invalid(int index, String username, String message) {
+        return new UserCreationResult(index, username, Status.INVALID, message);
+    }
+
+    public static UserCreationResult failed(int index, String username, String message) {
+        return new UserCreationResult(index, username, Status.FAILED, message);
+    }
+}
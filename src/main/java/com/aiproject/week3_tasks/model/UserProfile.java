@@ -1,20 +1,51 @@
 package com.aiproject.week3_tasks.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+
+import java.util.Locale;
 
 @Entity
+@Table(name = "user_profile", uniqueConstraints = {
+        @UniqueConstraint(name = UserProfile.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = UserProfile.EMAIL_CONSTRAINT, columnNames = "email_normalized")
+})
 public class UserProfile {
+    public static final String USERNAME_CONSTRAINT = "uk_user_profile_username";
+    public static final String EMAIL_CONSTRAINT = "uk_user_profile_email_normalized";
+
+    // Sequence ids (rather than IDENTITY) let Hibernate batch inserts; allocationSize
+    // pools ids so a chunk of inserts costs one sequence call per 50 rows.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_profile_seq")
+    @SequenceGenerator(name = "user_profile_seq", sequenceName = "user_profile_seq", allocationSize = 50)
     private Long id;
     private String username;
     private String email;
+    // Lower-cased copy of email that the unique constraint is declared on, so addresses
+    // differing only in case count as duplicates.
+    @Column(name = "email_normalized")
+    private String emailNormalized;
     private String firstName;
     private String lastName;
     private boolean active = true;
+    // Bumped by every update, including the targeted UPDATE statements in UserProfileRepository.
+    @Version
+    @Column(columnDefinition = "bigint not null default 0")
+    private long version;
+
+    protected UserProfile() {
+        // for JPA
+    }
 
     public UserProfile(String username, String email, String firstName, String lastName) {
         this.username = username;
@@ -24,6 +55,7 @@ public class UserProfile {
         this.active = true;
     }
 
+    public Long getId() { return id; }
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
     public String getEmail() { return email; }
@@ -34,4 +66,15 @@ public class UserProfile {
     public void setLastName(String lastName) { this.lastName = lastName; }
     public boolean isActive() { return active; }
     public void setActive(boolean active) { this.active = active; }
-} 
\ No newline at end of file
+    public long getVersion() { return version; }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeEmail() {
+        emailNormalized = normalizeEmail(email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email != null ? email.toLowerCase(Locale.ROOT) : null;
+    }
+} 
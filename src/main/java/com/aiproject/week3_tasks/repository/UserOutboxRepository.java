@@ -0,0 +1,57 @@
+package com.aiproject.week3_tasks.repository;
+
+import com.aiproject.week3_tasks.model.UserChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface UserOutboxRepository extends JpaRepository<UserChangeEvent, Long> {
+
+    // Transaction-scoped advisory lock, so only one relay across instances numbers events.
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryRelayLock(@Param("key") long key);
+
+    // Numbers the oldest unpublished events consecutively after the last published one and
+    // returns them, in one statement. Must run while holding the relay lock.
+    @Query(value = "with oldest as (select id, created_at from user_outbox where feed_sequence is null "
+            + "order by created_at, id limit :limit), "
+            + "batch as (select id, row_number() over (order by created_at, id) as rn from oldest), "
+            + "base as (select coalesce(max(feed_sequence), 0) as last from user_outbox) "
+            + "update user_outbox o set feed_sequence = base.last + batch.rn from batch, base "
+            + "where o.id = batch.id returning o.*", nativeQuery = true)
+    List<UserChangeEvent> publishNextBatch(@Param("limit") int limit);
+
+    @Query("select e from UserChangeEvent e where e.feedSequence > :since order by e.feedSequence")
+    List<UserChangeEvent> findPublishedAfter(@Param("since") long since, Pageable page);
+
+    @Query("select max(e.feedSequence) from UserChangeEvent e")
+    Long findMaxFeedSequence();
+
+    @Query("select e from UserChangeEvent e where e.feedSequence is null order by e.createdAt, e.id")
+    List<UserChangeEvent> findUnpublished(Pageable page);
+
+    @Query("select e.sourceId from UserChangeEvent e where e.sourceShard = :shard and e.sourceId in :ids")
+    Set<Long> findForwardedSourceIds(@Param("shard") int shard, @Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserChangeEvent e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keeps the newest published event, which later batches are numbered from.
+    @Transactional
+    @Modifying
+    @Query("delete from UserChangeEvent e where e.feedSequence is not null and e.createdAt < :before "
+            + "and e.feedSequence < (select max(x.feedSequence) from UserChangeEvent x)")
+    int deletePublishedBefore(@Param("before") Instant before);
+}
@@ -1,12 +1,74 @@
 package com.aiproject.week3_tasks.repository;
 
 import com.aiproject.week3_tasks.model.UserProfile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
     boolean existsByUsername(String username);
     Optional<UserProfile> findByUsername(String username);
-} 
\ No newline at end of file
+
+    @Query("select u.username from UserProfile u where u.username in :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.emailNormalized from UserProfile u where u.emailNormalized in :emails")
+    Set<String> findExistingNormalizedEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select u.username from UserProfile u where u.username > :after order by u.username")
+    List<String> findUsernamesAfter(@Param("after") String after, Pageable page);
+
+    List<UserProfile> findByUsernameIn(Collection<String> usernames);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserProfile u where u.username in :usernames")
+    int deleteByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    // Single-statement updates: each bumps the version, appends the change to the outbox and
+    // returns the new row, so a change costs one round trip and cannot overwrite a concurrent
+    // change to another column.
+    @Transactional
+    @Query(value = "with changed as (update user_profile set email = :email, email_normalized = lower(:email), "
+            + "version = version + 1 where username = :username returning *), "
+            + "event as (insert into user_outbox (id, type, username, email, first_name, last_name, active) "
+            + "select nextval('user_outbox_seq'), 'EMAIL_UPDATED', username, email, first_name, last_name, active from changed) "
+            + "select * from changed", nativeQuery = true)
+    Optional<UserProfile> updateEmail(@Param("username") String username, @Param("email") String email);
+
+    @Transactional
+    @Query(value = "with changed as (update user_profile set first_name = :firstName, last_name = :lastName, "
+            + "version = version + 1 where username = :username returning *), "
+            + "event as (insert into user_outbox (id, type, username, email, first_name, last_name, active) "
+            + "select nextval('user_outbox_seq'), 'NAME_UPDATED', username, email, first_name, last_name, active from changed) "
+            + "select * from changed", nativeQuery = true)
+    Optional<UserProfile> updateName(@Param("username") String username,
+                                     @Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    @Transactional
+    @Query(value = "with changed as (update user_profile set active = :active, version = version + 1 "
+            + "where username = :username returning *), "
+            + "event as (insert into user_outbox (id, type, username, email, first_name, last_name, active) "
+            + "select nextval('user_outbox_seq'), case when :active then 'ACTIVATED' else 'DEACTIVATED' end, "
+            + "username, email, first_name, last_name, active from changed) "
+            + "select * from changed", nativeQuery = true)
+    Optional<UserProfile> updateActive(@Param("username") String username, @Param("active") boolean active);
+
+    @Query("select min(u.id) from UserProfile u")
+    Long findMinId();
+
+    @Query("select max(u.id) from UserProfile u")
+    Long findMaxId();
+
+    @Query("select u from UserProfile u where u.id > :afterId and u.id <= :maxId order by u.id")
+    List<UserProfile> findPageInIdRange(@Param("afterId") long afterId, @Param("maxId") long maxId, Pageable page);
+} 
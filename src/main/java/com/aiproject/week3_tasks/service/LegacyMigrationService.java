@@ -0,0 +1,310 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.legacy.UserProfileManager;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import com.aiproject.week3_tasks.sharding.ShardRouter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves users from the legacy {@link UserProfileManager} into the repository while both stay
+ * online, replacing the stop-the-world {@link UserProfileService#importFromLegacy()}.
+ *
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>{@link #readThrough} serves a user missing from the repository out of the legacy store
+ *       and migrates it in the background. Concurrent misses for one username share a single
+ *       migration (single-flight).</li>
+ *   <li>A trickle migrator walks the legacy store and copies the cold remainder at
+ *       {@code legacy.migration.trickle-rate} users per second, until a full pass finds nothing
+ *       left to copy.</li>
+ *   <li>Users already in the repository always win; a legacy user whose email is taken by
+ *       another user is left behind and counted as a conflict.</li>
+ * </ul>
+ *
+ * <b>Metrics:</b>
+ * <ul>
+ *   <li>{@code legacy.migration.migrated{trigger=read|trickle}} - users copied</li>
+ *   <li>{@code legacy.migration.conflicts} - legacy users left behind because their email is
+ *       taken</li>
+ *   <li>{@code legacy.migration.failures} - migrations that failed with an error</li>
+ *   <li>{@code legacy.migration.legacy.users} - users in the legacy store</li>
+ *   <li>{@code legacy.migration.scanned} - legacy users checked in the current trickle pass</li>
+ *   <li>{@code legacy.migration.complete} - 1 once a trickle pass found nothing to copy</li>
+ * </ul>
+ * The legacy store can be retired once {@code complete} is 1 and the conflicts are resolved.
+ */
+@Service
+public class LegacyMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyMigrationService.class);
+    private static final int TRICKLE_CHUNK_SIZE = 500;
+    private static final int TRICKLE_MAX_SCAN_PER_STEP = 5000;
+
+    // A lazy proxy; the trickle migrator, after startup, is normally its first user.
+    @Autowired
+    @Lazy
+    private UserProfileManager legacyManager;
+    @Autowired
+    private UserProfileRepository repository;
+    @Autowired
+    private UserProfileService userProfileService;
+    @Autowired
+    private ShardRouter shards;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${legacy.migration.read-through:true}")
+    private boolean readThroughEnabled = true;
+    @Value("${legacy.migration.trickle-rate:100}")
+    private int trickleRate = 100;
+    @Value("${legacy.migration.worker-threads:2}")
+    private int workerThreads = 2;
+
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong migratedOnRead = new AtomicLong();
+    private final AtomicLong migratedByTrickle = new AtomicLong();
+    private final Set<String> conflicts = ConcurrentHashMap.newKeySet();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong scanned = new AtomicLong();
+    private volatile boolean complete;
+    private ExecutorService executor;
+    private ScheduledExecutorService trickleScheduler;
+    private Iterator<String> trickleCursor;
+    private long copiedThisPass;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "legacy-migration-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        FunctionCounter.builder("legacy.migration.migrated", migratedOnRead, AtomicLong::get)
+                .tag("trigger", "read").register(meterRegistry);
+        FunctionCounter.builder("legacy.migration.migrated", migratedByTrickle, AtomicLong::get)
+                .tag("trigger", "trickle").register(meterRegistry);
+        Gauge.builder("legacy.migration.conflicts", conflicts, Set::size).register(meterRegistry);
+        FunctionCounter.builder("legacy.migration.failures", failures, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("legacy.migration.legacy.users", legacyManager, UserProfileManager::getUserCount)
+                .register(meterRegistry);
+        Gauge.builder("legacy.migration.scanned", scanned, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("legacy.migration.complete", this, service -> service.complete ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTrickle() {
+        if (trickleRate <= 0) {
+            logger.info("Legacy trickle migration disabled");
+            return;
+        }
+        trickleScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "legacy-trickle-migrator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        trickleScheduler.scheduleWithFixedDelay(this::trickle, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (trickleScheduler != null) {
+            trickleScheduler.shutdownNow();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Look a user up in the legacy store after a repository miss. A hit is returned at once as
+     * an unsaved profile and copied into the repository in the background.
+     */
+    public Optional<UserProfile> readThrough(String username) {
+        if (!readThroughEnabled) {
+            return Optional.empty();
+        }
+        String email = legacyManager.getEmail(username);
+        if (email == null) {
+            return Optional.empty();
+        }
+        if (!conflicts.contains(username)) {
+            migrationFor(username);
+        }
+        return Optional.of(new UserProfile(username, email, null, null));
+    }
+
+    /**
+     * Copy one legacy user into the repository now, joining a migration already in flight.
+     *
+     * @return whether the user is in the repository afterwards
+     */
+    public boolean migrate(String username) {
+        if (!readThroughEnabled || legacyManager.getEmail(username) == null) {
+            return false;
+        }
+        try {
+            return migrationFor(username).join();
+        } catch (CompletionException | CancellationException e) {
+            return false;
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private CompletableFuture<Boolean> migrationFor(String username) {
+        boolean[] created = {false};
+        CompletableFuture<Boolean> future = inFlight.computeIfAbsent(username, key -> {
+            created[0] = true;
+            return new CompletableFuture<>();
+        });
+        if (created[0]) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        future.complete(migrateOne(username));
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                        logger.warn("Could not migrate legacy user {}", username, e);
+                        future.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(username, future);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(username, future);
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    private boolean migrateOne(String username) {
+        String email = legacyManager.getEmail(username);
+        if (email == null) {
+            return false;
+        }
+        Map<String, String> skipped;
+        try {
+            skipped = userProfileService.insertNewUsers(List.of(new UserProfile(username, email, null, null)));
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // Lost a race with the trickle migrator or a create; the row is there or the
+            // email was taken meanwhile.
+            return existsInRepository(username);
+        }
+        if (skipped.isEmpty()) {
+            migratedOnRead.incrementAndGet();
+            conflicts.remove(username);
+            logger.debug("Migrated legacy user {} on read", username);
+            return true;
+        }
+        if (existsInRepository(username)) {
+            return true;
+        }
+        if (conflicts.add(username)) {
+            logger.warn("Legacy user {} not migrated: {}", username, skipped.get(username));
+        }
+        return false;
+    }
+
+    private boolean existsInRepository(String username) {
+        return shards.forUser(username, () -> repository.existsByUsername(username));
+    }
+
+    /**
+     * Copy up to {@code trickleRate} legacy users, continuing the current pass over the legacy
+     * store. Users already migrated do not count against the rate, but at most
+     * {@value #TRICKLE_MAX_SCAN_PER_STEP} are checked per step. Runs once a second on the
+     * trickle thread.
+     */
+    void trickle() {
+        try {
+            if (trickleCursor == null) {
+                trickleCursor = legacyManager.getAllUsernames().iterator();
+                copiedThisPass = 0;
+                scanned.set(0);
+            }
+            int budget = trickleRate;
+            int scanBudget = Math.max(trickleRate, TRICKLE_MAX_SCAN_PER_STEP);
+            while (budget > 0 && scanBudget > 0 && trickleCursor.hasNext()) {
+                int chunkSize = Math.min(Math.min(budget, scanBudget), TRICKLE_CHUNK_SIZE);
+                List<UserProfile> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && trickleCursor.hasNext()) {
+                    String username = trickleCursor.next();
+                    scanned.incrementAndGet();
+                    scanBudget--;
+                    String email = legacyManager.getEmail(username);
+                    if (email != null && !inFlight.containsKey(username)) {
+                        chunk.add(new UserProfile(username, email, null, null));
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    int copied = insertTrickleChunk(chunk);
+                    copiedThisPass += copied;
+                    budget -= copied;
+                }
+            }
+            if (!trickleCursor.hasNext()) {
+                logger.info("Legacy trickle pass finished: {} users scanned, {} copied", scanned.get(), copiedThisPass);
+                trickleCursor = null;
+                if (copiedThisPass == 0) {
+                    complete = true;
+                    logger.info("Legacy migration complete; stopping trickle migrator");
+                    if (trickleScheduler != null) {
+                        trickleScheduler.shutdown();
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.error("Legacy trickle migration step failed", e);
+        }
+    }
+
+    private int insertTrickleChunk(List<UserProfile> chunk) {
+        Map<String, String> skipped;
+        try {
+            skipped = userProfileService.insertNewUsers(chunk);
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // A read-through or create inserted one of these users meanwhile; the retry
+            // sees it and skips it.
+            List<UserProfile> fresh = new ArrayList<>(chunk.size());
+            for (UserProfile user : chunk) {
+                fresh.add(new UserProfile(user.getUsername(), user.getEmail(), null, null));
+            }
+            skipped = userProfileService.insertNewUsers(fresh);
+        }
+        int copied = 0;
+        for (UserProfile user : chunk) {
+            String reason = skipped.get(user.getUsername());
+            if (reason == null) {
+                copied++;
+                conflicts.remove(user.getUsername());
+            } else if (!UserProfileService.USERNAME_EXISTS.equals(reason) && conflicts.add(user.getUsername())) {
+                logger.warn("Legacy user {} not migrated: {}", user.getUsername(), reason);
+            }
+        }
+        migratedByTrickle.addAndGet(copied);
+        return copied;
+    }
+}
@@ -0,0 +1,256 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.ReportJobStatus;
+import com.aiproject.week3_tasks.model.ReportSnapshot;
+import com.aiproject.week3_tasks.model.ReportType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the expensive {@link UserProfileService} reports off the caller's thread.
+ *
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>{@link #submit} returns a job id immediately; clients poll {@link #getJob}.</li>
+ *   <li>Requests for the same report, parameters and data version share one computation
+ *       (single-flight).</li>
+ *   <li>Finished reports are kept as immutable {@link ReportSnapshot}s. A request whose
+ *       snapshot is still current gets back the finished job that generated it, without
+ *       recomputing or registering a new job.</li>
+ *   <li>{@link #getLatest} serves the last snapshot even when it is stale and starts a refresh
+ *       in the background (stale-while-revalidate).</li>
+ *   <li>Finished jobs stay readable for 10 minutes after they were last returned; expired jobs
+ *       are purged at most once a minute.</li>
+ *   <li>{@code daysRecent} must lie between 1 and {@value #MAX_DAYS_RECENT}, and at most
+ *       {@code reports.max-snapshots} snapshots are kept; the least recently generated one is
+ *       evicted first.</li>
+ *   <li>The service and its worker pool are created with the first report request.</li>
+ * </ul>
+ *
+ * <pre>
+ * ReportJobStatus job = reportJobService.submit(ReportType.COMPREHENSIVE, 30);
+ * // ... later
+ * reportJobService.getJob(job.jobId()).map(ReportJobStatus::snapshot);
+ * </pre>
+ */
+@Service
+@Lazy
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+    private static final Duration JOB_RETENTION = Duration.ofMinutes(10);
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int ANALYTICS_DAYS_RECENT = 7;
+    public static final int MAX_DAYS_RECENT = 366;
+
+    @Autowired
+    private UserProfileService userProfileService;
+    @Autowired
+    private UserDataVersion dataVersion;
+    @Value("${reports.worker-threads:2}")
+    private int workerThreads = 2;
+    @Value("${reports.max-snapshots:32}")
+    private int maxSnapshots = 32;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<JobKey, Job> inFlight = new ConcurrentHashMap<>();
+    // The finished job holding each report's latest snapshot.
+    private final Map<ReportKey, Job> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong nextPurge = new AtomicLong(System.nanoTime());
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "report-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Request a report. Completes immediately when a current snapshot exists, joins an
+     * identical in-flight job if there is one, and otherwise starts a new job.
+     *
+     * @throws IllegalArgumentException if {@code daysRecent} is out of range
+     */
+    public ReportJobStatus submit(ReportType type, int daysRecent) {
+        ReportKey reportKey = reportKey(type, daysRecent);
+        purgeExpiredJobs();
+        long version = dataVersion.current();
+
+        Job finished = snapshots.get(reportKey);
+        if (finished != null && finished.key.version() == version) {
+            finished.touch();
+            jobs.putIfAbsent(finished.id, finished);
+            return finished.status();
+        }
+
+        boolean[] created = {false};
+        Job job = inFlight.computeIfAbsent(new JobKey(reportKey, version), key -> {
+            created[0] = true;
+            return new Job(key);
+        });
+        if (created[0]) {
+            logger.info("Starting {} report job {} (daysRecent={}, version={})",
+                    type, job.id, reportKey.daysRecent(), version);
+            jobs.put(job.id, job);
+            try {
+                executor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(job.key, job);
+                job.fail("Report service is shutting down");
+            }
+        }
+        return job.status();
+    }
+
+    /**
+     * Current state of a job, or empty if the id is unknown or the job has expired.
+     */
+    public Optional<ReportJobStatus> getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? Optional.of(job.status()) : Optional.empty();
+    }
+
+    /**
+     * The last generated snapshot for these parameters, current or not. When there is no
+     * snapshot or it is stale, a refresh is started in the background.
+     *
+     * @throws IllegalArgumentException if {@code daysRecent} is out of range
+     */
+    public Optional<ReportSnapshot> getLatest(ReportType type, int daysRecent) {
+        ReportKey reportKey = reportKey(type, daysRecent);
+        Job finished = snapshots.get(reportKey);
+        ReportSnapshot snapshot = finished != null ? finished.snapshot : null;
+        if (snapshot == null || isStale(snapshot)) {
+            submit(type, daysRecent);
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * Whether user data has changed since the snapshot was generated.
+     */
+    public boolean isStale(ReportSnapshot snapshot) {
+        return snapshot.dataVersion() < dataVersion.current();
+    }
+
+    private void run(Job job) {
+        ReportKey reportKey = job.key.report();
+        try {
+            String content = reportKey.type() == ReportType.COMPREHENSIVE
+                    ? userProfileService.generateComprehensiveUserReport(reportKey.daysRecent())
+                    : userProfileService.processAndAnalyzeAllUserData();
+            // Labelled with the version read before generation began, so a change made while
+            // the report was running leaves it marked stale.
+            ReportSnapshot snapshot = new ReportSnapshot(reportKey.type(), reportKey.daysRecent(),
+                    job.key.version(), Instant.now(), content);
+            job.complete(snapshot);
+            snapshots.merge(reportKey, job,
+                    (previous, next) -> next.key.version() >= previous.key.version() ? next : previous);
+            evictOldSnapshots();
+            logger.info("Report job {} finished", job.id);
+        } catch (RuntimeException e) {
+            logger.error("Report job {} failed", job.id, e);
+            job.fail(e.getMessage());
+        } finally {
+            inFlight.remove(job.key, job);
+        }
+    }
+
+    private static ReportKey reportKey(ReportType type, int daysRecent) {
+        if (type == ReportType.ANALYTICS) {
+            return new ReportKey(type, ANALYTICS_DAYS_RECENT);
+        }
+        if (daysRecent < 1 || daysRecent > MAX_DAYS_RECENT) {
+            throw new IllegalArgumentException("daysRecent must be between 1 and " + MAX_DAYS_RECENT);
+        }
+        return new ReportKey(type, daysRecent);
+    }
+
+    private void evictOldSnapshots() {
+        while (snapshots.size() > maxSnapshots) {
+            snapshots.entrySet().stream()
+                    .min(Comparator.comparing(entry -> entry.getValue().snapshot.generatedAt()))
+                    .ifPresent(oldest -> snapshots.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        long due = nextPurge.get();
+        long now = System.nanoTime();
+        if (now - due < 0 || !nextPurge.compareAndSet(due, now + PURGE_INTERVAL_NANOS)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(JOB_RETENTION);
+        jobs.values().removeIf(job -> job.lastUsed != null && job.lastUsed.isBefore(cutoff));
+    }
+
+    private record ReportKey(ReportType type, int daysRecent) { }
+
+    private record JobKey(ReportKey report, long version) { }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final JobKey key;
+        volatile ReportJobStatus.State state = ReportJobStatus.State.RUNNING;
+        volatile ReportSnapshot snapshot;
+        volatile String error;
+        // Set when the job finishes and whenever it is returned again.
+        volatile Instant lastUsed;
+
+        Job(JobKey key) {
+            this.key = key;
+        }
+
+        void complete(ReportSnapshot result) {
+            snapshot = result;
+            lastUsed = Instant.now();
+            state = ReportJobStatus.State.DONE;
+        }
+
+        void fail(String message) {
+            error = message;
+            lastUsed = Instant.now();
+            state = ReportJobStatus.State.FAILED;
+        }
+
+        void touch() {
+            lastUsed = Instant.now();
+        }
+
+        ReportJobStatus status() {
+            ReportJobStatus.State current = state;
+            return new ReportJobStatus(id, current,
+                    current == ReportJobStatus.State.DONE ? snapshot : null,
+                    current == ReportJobStatus.State.FAILED ? error : null);
+        }
+    }
+}
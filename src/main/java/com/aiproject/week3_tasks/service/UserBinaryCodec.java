@@ -0,0 +1,200 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.UserProfile;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of user profiles, used by {@link com.aiproject.week3_tasks.model.ExportFormat#BINARY}.
+ *
+ * <b>Layout:</b>
+ * <pre>
+ * header  : 'U' 'P' 'B' version(1)
+ * entries : tag(1) body ...
+ *   DOMAIN : string domain                    - appends to the domain dictionary
+ *   USER   : flags(1) [string username]                            - when present
+ *            [varint domainIndex string localPart | string email]   - when email present
+ *            [string firstName] [string lastName]                   - when present
+ *   END    : (no body)
+ * string  : varint byteLength, UTF-8 bytes
+ * </pre>
+ * <p>
+ * Email domains are written once, the first time they occur, and referenced by index
+ * afterwards. Readers rebuild the dictionary as they go, so the format can be produced and
+ * consumed in a single streaming pass.
+ * </p>
+ */
+public final class UserBinaryCodec {
+
+    static final byte[] MAGIC = {'U', 'P', 'B'};
+    static final int VERSION = 2;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_USER = 1;
+    private static final int TAG_DOMAIN = 2;
+
+    private static final int FLAG_ACTIVE = 1;
+    private static final int FLAG_EMAIL = 1 << 1;
+    private static final int FLAG_EMAIL_DOMAIN = 1 << 2;
+    private static final int FLAG_FIRST_NAME = 1 << 3;
+    private static final int FLAG_LAST_NAME = 1 << 4;
+    private static final int FLAG_USERNAME = 1 << 5;
+
+    private UserBinaryCodec() {
+    }
+
+    /**
+     * Streams user profiles out in the binary format. Does not close the underlying stream.
+     */
+    public static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> domains = new HashMap<>();
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+            this.out.write(MAGIC);
+            this.out.writeByte(VERSION);
+        }
+
+        public void write(UserProfile user) throws IOException {
+            String email = user.getEmail();
+            int at = email != null ? email.lastIndexOf('@') : -1;
+            Integer domainIndex = null;
+            if (at >= 0) {
+                String domain = email.substring(at + 1);
+                domainIndex = domains.get(domain);
+                if (domainIndex == null) {
+                    domainIndex = domains.size();
+                    domains.put(domain, domainIndex);
+                    out.writeByte(TAG_DOMAIN);
+                    writeString(domain);
+                }
+            }
+            int flags = (user.isActive() ? FLAG_ACTIVE : 0)
+                    | (email != null ? FLAG_EMAIL : 0)
+                    | (domainIndex != null ? FLAG_EMAIL_DOMAIN : 0)
+                    | (user.getFirstName() != null ? FLAG_FIRST_NAME : 0)
+                    | (user.getLastName() != null ? FLAG_LAST_NAME : 0)
+                    | (user.getUsername() != null ? FLAG_USERNAME : 0);
+            out.writeByte(TAG_USER);
+            out.writeByte(flags);
+            if (user.getUsername() != null) {
+                writeString(user.getUsername());
+            }
+            if (domainIndex != null) {
+                writeVarInt(domainIndex);
+                writeString(email.substring(0, at));
+            } else if (email != null) {
+                writeString(email);
+            }
+            if (user.getFirstName() != null) {
+                writeString(user.getFirstName());
+            }
+            if (user.getLastName() != null) {
+                writeString(user.getLastName());
+            }
+        }
+
+        /**
+         * Write the end marker and flush buffered output.
+         */
+        public void finish() throws IOException {
+            out.writeByte(TAG_END);
+            out.flush();
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    /**
+     * Reads user profiles written by {@link Writer}. Does not close the underlying stream.
+     */
+    public static final class Reader {
+        private final DataInputStream in;
+        private final List<String> domains = new ArrayList<>();
+        private boolean finished;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+            byte[] magic = new byte[MAGIC.length];
+            this.in.readFully(magic);
+            int version = this.in.readUnsignedByte();
+            if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1] || magic[2] != MAGIC[2] || version != VERSION) {
+                throw new IOException("Not a user binary export (version " + VERSION + ")");
+            }
+        }
+
+        /**
+         * @return the next user, or {@code null} once the end marker has been read
+         */
+        public UserProfile next() throws IOException {
+            while (!finished) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case TAG_END -> finished = true;
+                    case TAG_DOMAIN -> domains.add(readString());
+                    case TAG_USER -> {
+                        return readUser();
+                    }
+                    default -> throw new IOException("Corrupt user binary export: unknown tag " + tag);
+                }
+            }
+            return null;
+        }
+
+        private UserProfile readUser() throws IOException {
+            int flags = in.readUnsignedByte();
+            String username = (flags & FLAG_USERNAME) != 0 ? readString() : null;
+            String email = null;
+            if ((flags & FLAG_EMAIL_DOMAIN) != 0) {
+                int domainIndex = readVarInt();
+                if (domainIndex >= domains.size()) {
+                    throw new IOException("Corrupt user binary export: unknown domain " + domainIndex);
+                }
+                email = readString() + "@" + domains.get(domainIndex);
+            } else if ((flags & FLAG_EMAIL) != 0) {
+                email = readString();
+            }
+            String firstName = (flags & FLAG_FIRST_NAME) != 0 ? readString() : null;
+            String lastName = (flags & FLAG_LAST_NAME) != 0 ? readString() : null;
+            UserProfile user = new UserProfile(username, email, firstName, lastName);
+            user.setActive((flags & FLAG_ACTIVE) != 0);
+            return user;
+        }
+
+        private String readString() throws IOException {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt user binary export: varint too long");
+        }
+    }
+}
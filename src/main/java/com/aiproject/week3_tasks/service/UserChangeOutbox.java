@@ -0,0 +1,63 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.UserChangeEvent;
+import com.aiproject.week3_tasks.model.UserChangeType;
+import com.aiproject.week3_tasks.model.UserProfile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Writes user changes to the {@code user_outbox} table inside the caller's transaction, so an
+ * event exists exactly when its change was committed. {@link UserChangeRelay} publishes them.
+ * <p>
+ * The single-statement updates in {@code UserProfileRepository} write their event in the same
+ * SQL statement instead; callers then only need {@link #wakeRelay()}.
+ * </p>
+ */
+@Component
+public class UserChangeOutbox {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private UserChangeRelay relay;
+
+    /**
+     * Append an event for a change made in the current transaction. For an existing user, the
+     * change must already be flushed so the row lock is held when the event is written; see
+     * {@link UserChangeEvent}.
+     */
+    public void record(UserChangeType type, UserProfile user) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("User change events must be recorded inside the change's transaction");
+        }
+        entityManager.persist(new UserChangeEvent(type, user));
+        // One wake-up per transaction, however many events it records.
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relay.wakeUp();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserChangeOutbox.this);
+                }
+            });
+        }
+    }
+
+    /**
+     * Tell the relay new events were committed, so it does not wait for its next poll.
+     */
+    public void wakeRelay() {
+        relay.wakeUp();
+    }
+}
@@ -0,0 +1,313 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.UserChange;
+import com.aiproject.week3_tasks.model.UserChangeEvent;
+import com.aiproject.week3_tasks.model.UserChangePage;
+import com.aiproject.week3_tasks.repository.UserOutboxRepository;
+import com.aiproject.week3_tasks.sharding.ShardRouter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Publishes committed {@code user_outbox} events as the user change feed.
+ *
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>A relay thread numbers unpublished events in batches of {@code outbox.relay.batch-size},
+ *       consecutively and in commit order, and hands each batch to the in-process subscribers.
+ *       It wakes when a change commits and otherwise polls every
+ *       {@code outbox.relay.poll-interval}.</li>
+ *   <li>A database advisory lock lets only one instance number events. Other instances pick
+ *       the published events up from the table, so their subscribers see the same feed.</li>
+ *   <li>With several shards, the feed lives in shard 0's outbox. The lock holder first forwards
+ *       the other shards' events there, oldest first, and deletes the originals once the copies
+ *       are committed. Events of one user, who lives on one shard, keep their order; events of
+ *       users on different shards are ordered by when they were forwarded.</li>
+ *   <li>Published events stay readable by sequence number ({@link #changesSince}) for
+ *       {@code outbox.retention}, so a consumer can resume from the last number it saw.</li>
+ *   <li>A failed round is logged and retried after the poll interval; failures are counted in
+ *       the {@code outbox.relay.failures} metric.</li>
+ * </ul>
+ *
+ * <pre>
+ * try (UserChangeRelay.Subscription subscription = relay.subscribe(batch -> index.apply(batch))) {
+ *     ...
+ * }
+ * UserChangePage page = relay.changesSince(lastSeen, 500);
+ * </pre>
+ */
+@Service
+public class UserChangeRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeRelay.class);
+    private static final long RELAY_LOCK_KEY = 0x5573724368616e67L;
+    private static final Duration PURGE_INTERVAL = Duration.ofMinutes(10);
+
+    @Autowired
+    private UserOutboxRepository outboxRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ShardRouter shards;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize = 500;
+    @Value("${outbox.relay.poll-interval:PT0.2S}")
+    private Duration pollInterval = Duration.ofMillis(200);
+    @Value("${outbox.retention:P7D}")
+    private Duration retention = Duration.ofDays(7);
+
+    private final List<Consumer<List<UserChange>>> subscribers = new CopyOnWriteArrayList<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long publishedSequence;
+    private volatile boolean running;
+    private boolean initialized;
+    private Thread relayThread;
+    private Instant nextPurge = Instant.now();
+
+    @PostConstruct
+    void start() {
+        FunctionCounter.builder("outbox.relay.failures", failures, AtomicLong::get).register(meterRegistry);
+        running = true;
+        relayThread = new Thread(this::run, "user-change-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        relayThread.interrupt();
+    }
+
+    /**
+     * Receive every published batch, in sequence order, on the relay thread. Subscribers must
+     * return quickly; slow work belongs on the subscriber's own executor.
+     */
+    public Subscription subscribe(Consumer<List<UserChange>> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Up to {@code limit} published changes with a sequence number above {@code since}.
+     */
+    public UserChangePage changesSince(long since, int limit) {
+        List<UserChange> changes = outboxRepository.findPublishedAfter(since, PageRequest.of(0, limit)).stream()
+                .map(UserChangeEvent::toChange)
+                .toList();
+        return new UserChangePage(changes, changes.isEmpty() ? since : changes.get(changes.size() - 1).sequence());
+    }
+
+    /**
+     * Completes once a change with a sequence number above {@code since} has been published.
+     * Cancel the future to stop waiting.
+     */
+    public CompletableFuture<Void> whenPublishedAfter(long since) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (publishedSequence > since) {
+            future.complete(null);
+            return future;
+        }
+        waiters.removeIf(waiter -> waiter.future().isDone());
+        waiters.add(new Waiter(since, future));
+        // Re-check: a batch may have been published between the first check and the add.
+        if (publishedSequence > since) {
+            future.complete(null);
+        }
+        return future;
+    }
+
+    public long getPublishedSequence() {
+        return publishedSequence;
+    }
+
+    /**
+     * Relay rounds that failed and were retried.
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Ask the relay to look for new events now rather than at its next poll.
+     */
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (!initialized) {
+                    Long last = outboxRepository.findMaxFeedSequence();
+                    advanceTo(last != null ? last : 0);
+                    initialized = true;
+                }
+                int relayed = relayOnce();
+                if (relayed < batchSize) {
+                    wakeUps.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+                purgeIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                failures.incrementAndGet();
+                logger.error("User change relay failed; retrying", e);
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish the next batch, numbering it if this instance holds the relay lock and otherwise
+     * reading what the lock holder published.
+     *
+     * @return the number of changes published
+     */
+    int relayOnce() {
+        Map<Integer, List<Long>> forwarded = new TreeMap<>();
+        List<UserChange> batch = shards.onShard(0, () -> transactionTemplate.execute(status -> {
+            if (!outboxRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+                return null;
+            }
+            for (int shard = 1; shard < shards.shardCount(); shard++) {
+                List<Long> ids = forwardFrom(shard);
+                if (!ids.isEmpty()) {
+                    forwarded.put(shard, ids);
+                }
+            }
+            List<UserChange> changes = new ArrayList<>();
+            for (UserChangeEvent event : outboxRepository.publishNextBatch(batchSize)) {
+                changes.add(event.toChange());
+            }
+            changes.sort(Comparator.comparingLong(UserChange::sequence));
+            return changes;
+        }));
+        // The copies are committed; a crash before this point leaves originals that the next
+        // round recognises as forwarded and only deletes.
+        forwarded.forEach((shard, ids) -> shards.onShard(shard, () -> outboxRepository.deleteByIdIn(ids)));
+        if (batch == null) {
+            batch = changesSince(publishedSequence, batchSize).changes();
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+        return batch.size();
+    }
+
+    /**
+     * Copy the oldest unpublished events of {@code shard} into the current transaction on
+     * shard 0, skipping those copied before.
+     *
+     * @return the ids of the events on {@code shard} that now have a copy
+     */
+    private List<Long> forwardFrom(int shard) {
+        List<UserChangeEvent> pending = shards.onShardDetached(shard,
+                () -> outboxRepository.findUnpublished(PageRequest.of(0, batchSize)));
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(pending.size());
+        for (UserChangeEvent event : pending) {
+            ids.add(event.getId());
+        }
+        Set<Long> copied = outboxRepository.findForwardedSourceIds(shard, ids);
+        List<UserChangeEvent> copies = new ArrayList<>();
+        for (UserChangeEvent event : pending) {
+            if (!copied.contains(event.getId())) {
+                UserChangeEvent copy = UserChangeEvent.forwardedFrom(shard, event);
+                entityManager.persist(copy);
+                copies.add(copy);
+            }
+        }
+        entityManager.flush();
+        // Otherwise publishNextBatch would return these managed copies, which still lack the
+        // feed sequence it has just set.
+        copies.forEach(entityManager::detach);
+        return ids;
+    }
+
+    private void deliver(List<UserChange> batch) {
+        List<UserChange> changes = Collections.unmodifiableList(batch);
+        advanceTo(changes.get(changes.size() - 1).sequence());
+        for (Consumer<List<UserChange>> subscriber : subscribers) {
+            try {
+                subscriber.accept(changes);
+            } catch (RuntimeException e) {
+                logger.warn("User change subscriber failed", e);
+            }
+        }
+    }
+
+    private void advanceTo(long sequence) {
+        if (sequence <= publishedSequence) {
+            return;
+        }
+        publishedSequence = sequence;
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (waiter.future().isDone() || waiter.since() < sequence) {
+                it.remove();
+                waiter.future().complete(null);
+            }
+        }
+    }
+
+    private void purgeIfDue() {
+        Instant now = Instant.now();
+        if (now.isBefore(nextPurge)) {
+            return;
+        }
+        nextPurge = now.plus(PURGE_INTERVAL);
+        int purged = outboxRepository.deletePublishedBefore(now.minus(retention));
+        if (purged > 0) {
+            logger.info("Purged {} published user change events older than {}", purged, retention);
+        }
+    }
+
+    /**
+     * Stops delivery to one subscriber.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private record Waiter(long since, CompletableFuture<Void> future) { }
+}
@@ -0,0 +1,385 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.exception.InvalidUserException;
+import com.aiproject.week3_tasks.model.CsvImportReport;
+import com.aiproject.week3_tasks.model.CsvImportReport.LineError;
+import com.aiproject.week3_tasks.model.UserProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a CSV file in the {@link UserProfileService#exportToCsv()} format back into the
+ * user repository.
+ * <p>
+ * The file is memory-mapped and cut into segments on line boundaries, one per worker of a
+ * dedicated fork-join pool. Workers parse and validate their segment and hand batches of rows
+ * to the calling thread over a bounded queue; the calling thread inserts them through
+ * {@link UserProfileService#insertNewUsers(List)}. Because the queue is bounded, parsing can
+ * only run a few batches ahead of the database and heap use does not grow with file size.
+ * </p>
+ *
+ * <pre>
+ * CsvImportReport report = userCsvImporter.importFromCsv(Path.of("users.csv"));
+ * </pre>
+ */
+@Component
+public class UserCsvImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCsvImporter.class);
+    static final String HEADER = UserProfileService.CSV_HEADER;
+    private static final long MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final int BATCH_SIZE = 500;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int MAX_REPORTED_ERRORS = 10_000;
+    private static final long POLL_MILLIS = 100;
+
+    @Autowired
+    private UserProfileService userProfileService;
+
+    /**
+     * Import all rows of a CSV file, skipping invalid rows and usernames that already exist.
+     * A batch whose insert fails is reported as failed, line by line, and the import goes on.
+     * Segments are written in whatever order their batches arrive, so when a username repeats
+     * within the file it is not defined which occurrence is imported.
+     *
+     * @param file CSV file whose first line is the export header
+     * @return counts plus a per-line reason for every row that was not imported
+     * @throws InvalidUserException if the file does not start with the expected header
+     */
+    public CsvImportReport importFromCsv(Path file) throws IOException {
+        logger.info("Importing users from CSV: {}", file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return new CsvImportReport(0, 0, 0, 0, 0, List.of());
+            }
+            long dataStart = skipHeader(channel, size);
+            if (dataStart >= size) {
+                return new CsvImportReport(0, 0, 0, 0, 0, List.of());
+            }
+            int parallelism = Runtime.getRuntime().availableProcessors();
+            long[] bounds = segmentBounds(channel, dataStart, size, parallelism);
+            CsvImportReport report = run(channel, bounds, parallelism);
+            logger.info("Imported {} of {} CSV rows ({} duplicates, {} invalid, {} failed)",
+                    report.created(), report.rows(), report.duplicates(), report.invalid(), report.failed());
+            return report;
+        }
+    }
+
+    /**
+     * Check the header line and return the offset of the first data line.
+     */
+    private static long skipHeader(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER.length() + 2);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+        int end = 0;
+        while (end < buffer.limit() && buffer.get(end) != '\n') {
+            end++;
+        }
+        if (end == buffer.limit() && buffer.limit() < size) {
+            throw new InvalidUserException("Invalid CSV header");
+        }
+        int length = end > 0 && buffer.get(end - 1) == '\r' ? end - 1 : end;
+        String header = new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+        if (!HEADER.equals(header)) {
+            throw new InvalidUserException("Invalid CSV header");
+        }
+        return Math.min(end + 1, size);
+    }
+
+    /**
+     * Split {@code [start, end)} into segments that each begin at the start of a line.
+     */
+    private static long[] segmentBounds(FileChannel channel, long start, long end, int parallelism) throws IOException {
+        long length = end - start;
+        long segments = Math.min(length, Math.max(parallelism, (length + MAX_SEGMENT_BYTES - 1) / MAX_SEGMENT_BYTES));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        for (long k = 1; k < segments; k++) {
+            long previous = bounds.get(bounds.size() - 1);
+            long boundary = nextLineStart(channel, Math.max(start + length * k / segments, previous + 1), end);
+            if (boundary < end) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(end);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Return the first offset at or after {@code position} that starts a line.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position - 1;
+        while (offset < end) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    private CsvImportReport run(FileChannel channel, long[] bounds, int parallelism) {
+        int segments = bounds.length - 1;
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicBoolean aborted = new AtomicBoolean();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<SegmentResult>> tasks = new ArrayList<>(segments);
+            for (int s = 0; s < segments; s++) {
+                tasks.add(pool.submit(new SegmentParser(channel, s, bounds[s], bounds[s + 1], queue, aborted)));
+            }
+            WriteResult written;
+            try {
+                written = drain(queue, tasks);
+            } catch (RuntimeException e) {
+                aborted.set(true);
+                throw e;
+            }
+            List<SegmentResult> parsed = new ArrayList<>(segments);
+            for (ForkJoinTask<SegmentResult> task : tasks) {
+                parsed.add(task.join());
+            }
+            return buildReport(parsed, written);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Insert batches as the parsers produce them until every parser has finished.
+     */
+    private WriteResult drain(BlockingQueue<Batch> queue, List<ForkJoinTask<SegmentResult>> tasks) {
+        WriteResult result = new WriteResult();
+        while (true) {
+            Batch batch;
+            try {
+                batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while importing CSV", e);
+            }
+            if (batch == null) {
+                boolean done = true;
+                for (ForkJoinTask<SegmentResult> task : tasks) {
+                    if (task.isCompletedAbnormally()) {
+                        throw new IllegalStateException("Failed to read CSV segment", task.getException());
+                    }
+                    done &= task.isDone();
+                }
+                if (done && queue.isEmpty()) {
+                    return result;
+                }
+                continue;
+            }
+            Map<String, Row> unique = new LinkedHashMap<>();
+            for (Row row : batch.rows()) {
+                if (unique.putIfAbsent(row.user().getUsername(), row) != null) {
+                    result.duplicates++;
+                    result.addError(new LocalError(batch.segment(), row.line(), "Username already exists"));
+                }
+            }
+            List<UserProfile> users = new ArrayList<>(unique.size());
+            for (Row row : unique.values()) {
+                users.add(row.user());
+            }
+            Map<String, String> skipped;
+            try {
+                skipped = userProfileService.insertNewUsers(users);
+            } catch (RuntimeException e) {
+                // E.g. a concurrent insert of the same username; the other batches still go in.
+                logger.warn("Failed to insert a batch of {} CSV rows: {}", users.size(), e.getMessage());
+                for (Row row : unique.values()) {
+                    result.failed++;
+                    result.addError(new LocalError(batch.segment(), row.line(), "Insert failed: " + e.getMessage()));
+                }
+                continue;
+            }
+            for (Row row : unique.values()) {
+                String reason = skipped.get(row.user().getUsername());
+                if (reason != null) {
+                    result.duplicates++;
+                    result.addError(new LocalError(batch.segment(), row.line(), reason));
+                } else {
+                    result.created++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Turn segment-local line numbers into file line numbers and assemble the report.
+     */
+    private static CsvImportReport buildReport(List<SegmentResult> parsed, WriteResult written) {
+        long[] lineOffsets = new long[parsed.size()];
+        long offset = 1; // the header is line 1
+        long invalid = 0;
+        for (int s = 0; s < parsed.size(); s++) {
+            lineOffsets[s] = offset;
+            offset += parsed.get(s).lines();
+            invalid += parsed.get(s).invalid();
+        }
+        List<LocalError> local = new ArrayList<>(written.errors);
+        for (SegmentResult segment : parsed) {
+            local.addAll(segment.errors());
+        }
+        List<LineError> errors = new ArrayList<>(local.size());
+        for (LocalError error : local) {
+            errors.add(new LineError(lineOffsets[error.segment()] + error.line(), error.message()));
+        }
+        errors.sort(Comparator.comparingLong(LineError::line));
+        if (errors.size() > MAX_REPORTED_ERRORS) {
+            errors = new ArrayList<>(errors.subList(0, MAX_REPORTED_ERRORS));
+        }
+        long rows = written.created + written.duplicates + invalid + written.failed;
+        return new CsvImportReport(rows, written.created, written.duplicates, invalid, written.failed, errors);
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Parses one segment of the file and publishes validated rows in batches.
+     */
+    private static final class SegmentParser implements Callable<SegmentResult> {
+        private final FileChannel channel;
+        private final int segment;
+        private final long start;
+        private final long end;
+        private final BlockingQueue<Batch> queue;
+        private final AtomicBoolean aborted;
+        private final List<LocalError> errors = new ArrayList<>();
+        private long invalid;
+
+        SegmentParser(FileChannel channel, int segment, long start, long end,
+                      BlockingQueue<Batch> queue, AtomicBoolean aborted) {
+            this.channel = channel;
+            this.segment = segment;
+            this.start = start;
+            this.end = end;
+            this.queue = queue;
+            this.aborted = aborted;
+        }
+
+        @Override
+        public SegmentResult call() throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] line = new byte[256];
+            List<Row> rows = new ArrayList<>(BATCH_SIZE);
+            long lines = 0;
+            while (buffer.hasRemaining() && !aborted.get()) {
+                int length = 0;
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        break;
+                    }
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                }
+                lines++;
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                if (length == 0) {
+                    continue;
+                }
+                Row row = parse(new String(line, 0, length, StandardCharsets.UTF_8), lines);
+                if (row != null) {
+                    rows.add(row);
+                    if (rows.size() == BATCH_SIZE) {
+                        publish(new Batch(segment, rows));
+                        rows = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                publish(new Batch(segment, rows));
+            }
+            return new SegmentResult(lines, invalid, errors);
+        }
+
+        private Row parse(String text, long line) {
+            String[] fields = text.split(",", -1);
+            String error = null;
+            if (fields.length != 4) {
+                error = "Expected 4 columns but found " + fields.length;
+            } else if (!UserProfileService.isValidUsername(fields[0])) {
+                error = "Invalid username";
+            } else if (!UserProfileService.isValidEmail(fields[1])) {
+                error = "Invalid email";
+            }
+            if (error != null) {
+                invalid++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new LocalError(segment, line, error));
+                }
+                return null;
+            }
+            return new Row(line, new UserProfile(fields[0], fields[1], emptyToNull(fields[2]), emptyToNull(fields[3])));
+        }
+
+        /**
+         * Hand a batch to the writer, waiting while the queue is full.
+         */
+        private void publish(Batch batch) {
+            try {
+                while (!aborted.get() && !queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    // back-pressure: the writer is behind
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.set(true);
+            }
+        }
+    }
+
+    private record Row(long line, UserProfile user) { }
+
+    private record Batch(int segment, List<Row> rows) { }
+
+    private record LocalError(int segment, long line, String message) { }
+
+    private record SegmentResult(long lines, long invalid, List<LocalError> errors) { }
+
+    private static final class WriteResult {
+        long created;
+        long duplicates;
+        long failed;
+        final List<LocalError> errors = new ArrayList<>();
+
+        void addError(LocalError error) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+}
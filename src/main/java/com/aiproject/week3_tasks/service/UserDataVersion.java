@@ -0,0 +1,59 @@
+package com.aiproject.week3_tasks.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic counter of changes to user data.
+ * <p>
+ * Derived data such as report snapshots records the version it was computed from and is
+ * considered stale once the counter has moved on. With a {@link UserChangeRelay}, every batch
+ * it publishes increments the counter, whichever instance made the changes; changes of this
+ * instance are not counted again when committed, so a report generated after a local change
+ * is not marked stale by that change's batch. A local change therefore marks snapshots stale
+ * once the relay, which it wakes, has published it. Without a relay, {@link UserProfileService}
+ * increments the counter as soon as it commits a change. The counter itself is per process;
+ * its values are only comparable within one instance.
+ * </p>
+ */
+@Component
+public class UserDataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    @Autowired(required = false)
+    private UserChangeRelay changeRelay;
+    private UserChangeRelay.Subscription subscription;
+
+    @PostConstruct
+    void start() {
+        if (changeRelay != null) {
+            subscription = changeRelay.subscribe(batch -> version.incrementAndGet());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Record a change committed by this instance. Only counted without a change relay; with
+     * one, the change is counted when its batch is published.
+     */
+    public void recordLocalChange() {
+        if (subscription == null) {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.ExportFormat;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import com.aiproject.week3_tasks.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming export of user data in the formats of {@link ExportFormat}.
+ * <p>
+ * Unlike {@link UserProfileService#exportToCsv()}, which builds the whole export in memory,
+ * exports here page through the table by id and write straight to the output stream. An export
+ * can also be split into shards by id range, written in parallel to separate files.
+ * </p>
+ * <p>
+ * Each database shard of the {@link ShardRouter} hands out ids from a range of its own, so ids
+ * are unique across shards, but the ranges are far apart. Each file therefore covers the same
+ * fraction of every database shard's ids rather than one slice of a single range.
+ * </p>
+ *
+ * <pre>
+ * try (OutputStream out = Files.newOutputStream(Path.of("users.upb.gz"))) {
+ *     userExportService.export(ExportFormat.BINARY_GZIP, out);
+ * }
+ * List&lt;Path&gt; shards = userExportService.exportShards(ExportFormat.CSV_GZIP, Path.of("export"), 4);
+ * </pre>
+ */
+@Service
+public class UserExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportService.class);
+    private static final int PAGE_SIZE = 1000;
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private UserProfileRepository repository;
+    @Autowired
+    private UserProfileService userProfileService;
+    @Autowired
+    private ShardRouter shardRouter;
+
+    /**
+     * Export all users to a stream. The stream is not closed.
+     */
+    public void export(ExportFormat format, OutputStream out) throws IOException {
+        logger.info("Exporting users as {}", format);
+        RecordWriter writer = openWriter(format, out);
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            Long maxId = shardRouter.onShard(shard, repository::findMaxId);
+            writeRange(writer, shard, Long.MIN_VALUE, maxId != null ? maxId : Long.MIN_VALUE);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Export all users into {@code shards} files of roughly equal id ranges, written in parallel.
+     *
+     * @return the shard files, in id order
+     */
+    public List<Path> exportShards(ExportFormat format, Path directory, int shards) throws IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be at least 1");
+        }
+        logger.info("Exporting users as {} into {} shards in {}", format, shards, directory);
+        Files.createDirectories(directory);
+        long[] low = new long[shardRouter.shardCount()];
+        long[] span = new long[shardRouter.shardCount()];
+        for (int shard = 0; shard < low.length; shard++) {
+            Long minId = shardRouter.onShard(shard, repository::findMinId);
+            Long maxId = shardRouter.onShard(shard, repository::findMaxId);
+            low[shard] = minId != null ? minId - 1 : 0;
+            span[shard] = maxId != null ? maxId - low[shard] : 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(shards, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<Path>> futures = new ArrayList<>(shards);
+            for (int k = 0; k < shards; k++) {
+                int part = k;
+                Path file = directory.resolve(String.format("users-%03d.%s", k, format.getExtension()));
+                futures.add(executor.submit(() -> {
+                    try (OutputStream out = Files.newOutputStream(file)) {
+                        RecordWriter writer = openWriter(format, out);
+                        for (int shard = 0; shard < low.length; shard++) {
+                            long afterId = low[shard] + span[shard] * part / shards;
+                            long upToId = low[shard] + span[shard] * (part + 1) / shards;
+                            writeRange(writer, shard, afterId, upToId);
+                        }
+                        writer.finish();
+                    }
+                    return file;
+                }));
+            }
+            List<Path> files = new ArrayList<>(shards);
+            for (Future<Path> future : futures) {
+                files.add(future.get());
+            }
+            return files;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting shards");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Shard export failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Import users from a {@link ExportFormat#BINARY} or {@link ExportFormat#BINARY_GZIP} export,
+     * skipping usernames that already exist. Compression is detected from the stream. Rows are
+     * trusted as written by {@link #export}, so they are not re-validated, except that rows
+     * without a username are skipped.
+     *
+     * @return the number of users created
+     */
+    public int importBinary(InputStream in) throws IOException {
+        logger.info("Importing users from binary export");
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        boolean gzip = buffered.read() == 0x1f && buffered.read() == 0x8b;
+        buffered.reset();
+        UserBinaryCodec.Reader reader = new UserBinaryCodec.Reader(gzip ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered);
+
+        int created = 0;
+        int withoutUsername = 0;
+        Map<String, UserProfile> chunk = new LinkedHashMap<>();
+        for (UserProfile user = reader.next(); user != null; user = reader.next()) {
+            if (user.getUsername() == null) {
+                withoutUsername++;
+                continue;
+            }
+            chunk.putIfAbsent(user.getUsername(), user);
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                created += insertChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += insertChunk(chunk);
+        }
+        if (withoutUsername > 0) {
+            logger.warn("Skipped {} users without a username in binary export", withoutUsername);
+        }
+        logger.info("Imported {} users from binary export", created);
+        return created;
+    }
+
+    private int insertChunk(Map<String, UserProfile> chunk) {
+        Map<String, String> skipped = userProfileService.insertNewUsers(new ArrayList<>(chunk.values()));
+        return chunk.size() - skipped.size();
+    }
+
+    /**
+     * Write the users of one database shard with ids in {@code (afterId, maxId]}, paging by id.
+     */
+    private void writeRange(RecordWriter writer, int shard, long afterId, long maxId) throws IOException {
+        long cursor = afterId;
+        while (cursor < maxId) {
+            long from = cursor;
+            List<UserProfile> page = shardRouter.onShard(shard,
+                    () -> repository.findPageInIdRange(from, maxId, PageRequest.of(0, PAGE_SIZE)));
+            for (UserProfile user : page) {
+                writer.write(user);
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            cursor = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Writes users in one export format; {@link #finish()} completes the output without closing it.
+     */
+    interface RecordWriter {
+        void write(UserProfile user) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    static RecordWriter openWriter(ExportFormat format, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = format.isGzip() ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        OutputStream target = gzip != null ? gzip : out;
+        RecordWriter writer = format.isBinary() ? binaryWriter(target) : csvWriter(target);
+        if (gzip == null) {
+            return writer;
+        }
+        return new RecordWriter() {
+            @Override
+            public void write(UserProfile user) throws IOException {
+                writer.write(user);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writer.finish();
+                gzip.finish();
+            }
+        };
+    }
+
+    private static RecordWriter csvWriter(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(UserProfileService.CSV_HEADER);
+        writer.write('\n');
+        StringBuilder row = new StringBuilder(128);
+        return new RecordWriter() {
+            @Override
+            public void write(UserProfile user) throws IOException {
+                row.setLength(0);
+                UserProfileService.appendCsvRow(row, user);
+                writer.append(row);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    private static RecordWriter binaryWriter(OutputStream out) throws IOException {
+        UserBinaryCodec.Writer writer = new UserBinaryCodec.Writer(out);
+        return new RecordWriter() {
+            @Override
+            public void write(UserProfile user) throws IOException {
+                writer.write(user);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writer.finish();
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import com.aiproject.week3_tasks.sharding.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In-memory Bloom filter of taken usernames, used by {@link UserProfileService#createUser} to
+ * skip the existence query for usernames that are certainly new.
+ * <p>
+ * The filter is filled from the database in the background after startup; until then every
+ * username counts as possibly taken. It only learns about users created by this instance, so a
+ * username taken elsewhere can slip past it. That is safe because the unique constraint on
+ * {@code username} is what actually rejects duplicates; the filter only saves a round trip.
+ * </p>
+ */
+@Component
+public class UsernameBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameBloomFilter.class);
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    @Autowired
+    private UserProfileRepository repository;
+    @Autowired
+    private ShardRouter shards;
+    @Value("${users.username-filter.expected-insertions:1000000}")
+    private long expectedInsertions = 1_000_000;
+    @Value("${users.username-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability = 0.01;
+
+    private BloomFilter filter;
+    private volatile boolean loaded;
+
+    @PostConstruct
+    void init() {
+        filter = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "username-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    void load() {
+        try {
+            long count = 0;
+            for (int shard = 0; shard < shards.shardCount(); shard++) {
+                String after = "";
+                while (true) {
+                    String from = after;
+                    List<String> page = shards.onShard(shard,
+                            () -> repository.findUsernamesAfter(from, PageRequest.of(0, LOAD_PAGE_SIZE)));
+                    for (String username : page) {
+                        filter.put(username);
+                    }
+                    count += page.size();
+                    if (page.size() < LOAD_PAGE_SIZE) {
+                        break;
+                    }
+                    after = page.get(page.size() - 1);
+                }
+            }
+            loaded = true;
+            logger.info("Username filter loaded with {} usernames", count);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load username filter, falling back to database checks", e);
+        }
+    }
+
+    /**
+     * @return {@code false} only if the username is certainly not taken
+     */
+    public boolean mightExist(String username) {
+        return !loaded || filter.mightContain(username);
+    }
+
+    public void add(String username) {
+        filter.put(username);
+    }
+}
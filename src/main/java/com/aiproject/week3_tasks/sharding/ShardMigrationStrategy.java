@@ -0,0 +1,73 @@
+package com.aiproject.week3_tasks.sharding;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the Flyway migrations to every shard. Spring Boot would only migrate the primary
+ * data source, which resolves to shard 0; instead each shard's pool is migrated with the same
+ * configuration, before the entity manager factory is built.
+ * <p>
+ * Each shard's id sequences are then moved into a range of their own, from
+ * {@code (shard + 1) * 2^40} upwards. There is one entity manager factory for all shards, so
+ * Hibernate fetches a block of ids from whichever shard the current transaction is on and may
+ * use it for inserts on another; with overlapping sequences that shard later hands out the
+ * same ids again. Disjoint ranges make ids unique across shards.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "users.sharding", name = "shards[0].url")
+class ShardMigrationStrategy implements FlywayMigrationStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardMigrationStrategy.class);
+    static final long SHARD_ID_RANGE = 1L << 40;
+    private static final List<String> ID_SEQUENCES = List.of("user_profile_seq", "user_outbox_seq");
+
+    @Autowired
+    private ShardRoutingDataSource routingDataSource;
+
+    @Override
+    public void migrate(Flyway flyway) {
+        Map<Object, DataSource> targets = routingDataSource.getResolvedDataSources();
+        for (int shard = 0; shard < targets.size(); shard++) {
+            MigrateResult result = Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(targets.get(shard))
+                    .load()
+                    .migrate();
+            logger.info("Applied {} migrations to shard {}", result.migrationsExecuted, shard);
+            assignIdRange(targets.get(shard), shard);
+        }
+    }
+
+    /**
+     * Move the id sequences of {@code shard} to the start of its range, unless they are there
+     * already, and cap them at its end so an exhausted range fails instead of overlapping the
+     * next one.
+     */
+    private static void assignIdRange(DataSource dataSource, int shard) {
+        long start = (shard + 1) * SHARD_ID_RANGE;
+        long end = start + SHARD_ID_RANGE - 1;
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (String sequence : ID_SEQUENCES) {
+            Long last = jdbc.queryForObject("select last_value from " + sequence, Long.class);
+            if (last != null && last >= start && last <= end) {
+                continue;
+            }
+            jdbc.queryForObject("select setval(?::regclass, ?)", Long.class, sequence, start);
+            jdbc.execute("alter sequence " + sequence + " maxvalue " + end);
+            logger.info("Moved {} of shard {} to ids from {}", sequence, shard, start);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.aiproject.week3_tasks.sharding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sharding settings, bound from {@code users.sharding.*}. With no shards listed, everything
+ * runs against the single {@code spring.datasource}.
+ *
+ * <pre>
+ * users.sharding.shards[0].url=jdbc:postgresql://db0:5432/users
+ * users.sharding.shards[0].username=postgres
+ * users.sharding.shards[0].password=postgres
+ * users.sharding.shards[1].url=jdbc:postgresql://db1:5432/users
+ * ...
+ * users.sharding.scatter-threads=8
+ * </pre>
+ * Shards are identified by their position in the list; appending shards and running the
+ * {@link ShardRebalancer} is the only supported way to change the list.
+ */
+@ConfigurationProperties(prefix = "users.sharding")
+public class ShardProperties {
+
+    private final List<Shard> shards = new ArrayList<>();
+    private int scatterThreads = 8;
+    private boolean rebalance;
+
+    public List<Shard> getShards() { return shards; }
+    public int getScatterThreads() { return scatterThreads; }
+    public void setScatterThreads(int scatterThreads) { this.scatterThreads = scatterThreads; }
+    public boolean isRebalance() { return rebalance; }
+    public void setRebalance(boolean rebalance) { this.rebalance = rebalance; }
+
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+        public int getMaximumPoolSize() { return maximumPoolSize; }
+        public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+    }
+}
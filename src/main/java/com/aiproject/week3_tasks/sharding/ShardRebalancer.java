@@ -0,0 +1,129 @@
+package com.aiproject.week3_tasks.sharding;
+
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Moves users that live on a shard other than their owner under the current shard list, e.g.
+ * after shards were appended to {@code users.sharding.shards}.
+ * <p>
+ * Each batch is copied to the owning shard and then deleted from the old one, each step in
+ * its own transaction. A user already present on the owner is not copied again, so an
+ * interrupted run can simply be repeated. Moves are not changes to the user and publish no
+ * change events.
+ * </p>
+ * <p>
+ * Until a user is moved, lookups on the owning shard do not find it, so run the rebalance
+ * before serving traffic with the new shard list:
+ * </p>
+ * <pre>
+ * java -jar week3-tasks.jar --users.sharding.rebalance=true --spring.main.web-application-type=none
+ * </pre>
+ * The application exits when the rebalance is done.
+ */
+@Component
+public class ShardRebalancer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+    private static final int SCAN_PAGE_SIZE = 5000;
+    private static final int MOVE_BATCH_SIZE = 500;
+
+    @Autowired
+    private ShardRouter shards;
+    @Autowired
+    private ShardProperties properties;
+    @Autowired
+    private UserProfileRepository repository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ApplicationContext applicationContext;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isRebalance()) {
+            return;
+        }
+        long moved = rebalance();
+        logger.info("Rebalance finished: moved {} users across {} shards", moved, shards.shardCount());
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+
+    /**
+     * Move every misplaced user to its owning shard. Shards are scanned in parallel.
+     *
+     * @return the number of users moved
+     */
+    public long rebalance() {
+        long moved = 0;
+        for (long count : shards.scatter(this::rebalanceShard)) {
+            moved += count;
+        }
+        return moved;
+    }
+
+    private long rebalanceShard(int shard) {
+        long moved = 0;
+        String after = "";
+        while (true) {
+            String from = after;
+            List<String> page = repository.findUsernamesAfter(from, PageRequest.of(0, SCAN_PAGE_SIZE));
+            Map<Integer, List<String>> misplaced = new TreeMap<>();
+            for (String username : page) {
+                int owner = shards.shardOf(username);
+                if (owner != shard) {
+                    misplaced.computeIfAbsent(owner, key -> new ArrayList<>()).add(username);
+                }
+            }
+            for (Map.Entry<Integer, List<String>> entry : misplaced.entrySet()) {
+                List<String> usernames = entry.getValue();
+                for (int i = 0; i < usernames.size(); i += MOVE_BATCH_SIZE) {
+                    moved += move(shard, entry.getKey(), usernames.subList(i, Math.min(i + MOVE_BATCH_SIZE, usernames.size())));
+                }
+            }
+            if (page.size() < SCAN_PAGE_SIZE) {
+                break;
+            }
+            after = page.get(page.size() - 1);
+        }
+        if (moved > 0) {
+            logger.info("Moved {} users off shard {}", moved, shard);
+        }
+        return moved;
+    }
+
+    // Runs on a scatter thread with the source shard selected and no transaction open.
+    private int move(int source, int target, List<String> usernames) {
+        List<UserProfile> users = repository.findByUsernameIn(usernames);
+        shards.onShard(target, () -> transactionTemplate.execute(status -> {
+            Set<String> present = repository.findExistingUsernames(usernames);
+            for (UserProfile user : users) {
+                if (!present.contains(user.getUsername())) {
+                    UserProfile copy = new UserProfile(user.getUsername(), user.getEmail(), user.getFirstName(), user.getLastName());
+                    copy.setActive(user.isActive());
+                    entityManager.persist(copy);
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        }));
+        return shards.onShard(source, () -> repository.deleteByUsernameIn(usernames));
+    }
+}
@@ -0,0 +1,232 @@
+package com.aiproject.week3_tasks.sharding;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard owns a user and runs work against a chosen shard.
+ *
+ * <b>Behaviour:</b>
+ * <ul>
+ *   <li>A user belongs to shard {@code jumpHash(hash(username), shardCount)}. With the jump
+ *       consistent hash, growing from N to N+1 shards moves only about 1/(N+1) of the users,
+ *       all of them to the new shard.</li>
+ *   <li>{@link #forUser} and {@link #onShard} select the shard for the calling thread. The
+ *       selection is read when the transaction's first statement needs a connection (see
+ *       {@link ShardingConfig}), so it must be made before the transaction starts; changing it
+ *       inside a transaction is refused rather than silently using the old shard.</li>
+ *   <li>{@link #scatter} runs one task per shard in parallel on {@code users.sharding.scatter-threads}
+ *       threads, each task in its own transactions, and returns the results in shard order.</li>
+ *   <li>Work that selects no shard, such as the file metadata and the change feed, runs on
+ *       shard 0.</li>
+ * </ul>
+ * With a single shard everything runs inline on the calling thread.
+ */
+@Component
+public class ShardRouter {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    @Autowired
+    private ShardProperties properties;
+
+    private int shardCount = 1;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        shardCount = Math.max(1, properties.getShards().size());
+        if (shardCount > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(Math.max(shardCount, properties.getScatterThreads()), runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String username) {
+        return jumpHash(hash(username), shardCount);
+    }
+
+    /**
+     * Run {@code work} on the shard that owns {@code username}.
+     */
+    public <T> T forUser(String username, Supplier<T> work) {
+        return onShard(shardOf(username), work);
+    }
+
+    public void runForUser(String username, Runnable work) {
+        forUser(username, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run {@code work} on {@code shard}, restoring the previous selection afterwards.
+     *
+     * @throws IllegalStateException if a transaction on another shard is active
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("No shard " + shard + " of " + shardCount);
+        }
+        Integer previous = CURRENT.get();
+        int active = previous != null ? previous : 0;
+        if (active != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard " + active);
+        }
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Run {@code work} on {@code shard} outside the caller's transaction, waiting for the
+     * result. Runs inline if the caller has no transaction.
+     */
+    public <T> T onShardDetached(int shard, Supplier<T> work) {
+        if (executor == null || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return onShard(shard, work);
+        }
+        return join(List.of(executor.submit(() -> onShard(shard, work)))).get(0);
+    }
+
+    /**
+     * Run {@code work} once per shard, in parallel, and return the results in shard order.
+     * A failure on any shard is rethrown after all shards have finished.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (executor == null) {
+            return Collections.singletonList(onShard(0, () -> work.apply(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> onShard(target, () -> work.apply(target))));
+        }
+        return join(futures);
+    }
+
+    /**
+     * {@link #scatter} for list results, concatenated in shard order.
+     */
+    public <T> List<T> gather(IntFunction<? extends Collection<T>> work) {
+        List<? extends Collection<T>> parts = scatter(work);
+        if (parts.size() == 1) {
+            return new ArrayList<>(parts.get(0));
+        }
+        int size = 0;
+        for (Collection<T> part : parts) {
+            size += part.size();
+        }
+        List<T> merged = new ArrayList<>(size);
+        for (Collection<T> part : parts) {
+            merged.addAll(part);
+        }
+        return merged;
+    }
+
+    /**
+     * Group {@code items} by the shard owning each one's username, keeping their order.
+     */
+    public <T> SortedMap<Integer, List<T>> partition(Collection<T> items, Function<T, String> username) {
+        SortedMap<Integer, List<T>> parts = new TreeMap<>();
+        for (T item : items) {
+            parts.computeIfAbsent(shardOf(username.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return parts;
+    }
+
+    private static <T> List<T> join(List<Future<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for shards", e);
+            } catch (ExecutionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException runtime
+                        ? runtime
+                        : new IllegalStateException("Shard task failed", e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * The shard selected on this thread, or null for the default shard 0.
+     */
+    static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 username, so placement does not depend on the JVM.
+     */
+    static long hash(String username) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Jump consistent hash (Lamping and Veach): maps {@code key} to a bucket in
+     * {@code [0, buckets)} so that adding a bucket only moves keys into the new bucket.
+     */
+    static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
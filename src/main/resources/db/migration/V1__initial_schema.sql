@@ -0,0 +1,36 @@
+-- Schema for a new database. Databases created earlier by spring.jpa.hibernate.ddl-auto=update
+-- are baselined at version 1 (spring.flyway.baseline-on-migrate) and upgraded by V2.
+
+create sequence user_profile_seq start with 1 increment by 50;
+create sequence user_outbox_seq start with 1 increment by 50;
+
+create table user_profile (
+    id bigint not null,
+    username varchar(255),
+    email varchar(255),
+    email_normalized varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    active boolean not null,
+    version bigint not null default 0,
+    primary key (id),
+    constraint uk_user_profile_username unique (username),
+    constraint uk_user_profile_email_normalized unique (email_normalized)
+);
+
+create table user_outbox (
+    id bigint not null,
+    feed_sequence bigint,
+    type varchar(32) not null,
+    username varchar(255),
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    active boolean,
+    source_shard integer,
+    source_id bigint,
+    created_at timestamp(6) with time zone not null default clock_timestamp(),
+    primary key (id),
+    constraint uk_user_outbox_feed_sequence unique (feed_sequence),
+    constraint uk_user_outbox_source unique (source_shard, source_id)
+);
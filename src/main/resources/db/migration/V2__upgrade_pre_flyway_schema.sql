@@ -0,0 +1,69 @@
+-- Brings a database baselined at version 1 up to the V1 schema. Such a database was created by
+-- spring.jpa.hibernate.ddl-auto=update before the migrations existed: user_profile has an
+-- identity id and none of version, email_normalized, their constraints, the sequences or
+-- user_outbox. Every step is a no-op on a database created by V1.
+
+-- Hibernate hands out ids in blocks of 50 ending at the sequence value, so the next block must
+-- end at least 50 past the highest id in use.
+create sequence if not exists user_profile_seq start with 1 increment by 50;
+create sequence if not exists user_outbox_seq start with 1 increment by 50;
+select setval('user_profile_seq', (select coalesce(max(id), 0) + 50 from user_profile))
+where (select max(id) from user_profile) >= (select last_value from user_profile_seq) - 49;
+
+alter table user_profile alter column id drop identity if exists;
+alter table user_profile alter column id drop default;
+alter table user_profile add column if not exists version bigint not null default 0;
+alter table user_profile add column if not exists email_normalized varchar(255);
+
+update user_profile set email_normalized = lower(email)
+where email is not null and email_normalized is null;
+
+-- Duplicates have to be resolved by hand before the unique constraints can be created; the
+-- migration does not pick a winner, since renaming a user or dropping an email changes who
+-- they are. It fails listing every conflicting username and email, and can be rerun after.
+do $$
+declare
+    usernames text;
+    emails text;
+begin
+    select string_agg(username, ', ' order by username) into usernames
+    from (select username from user_profile where username is not null
+          group by username having count(*) > 1) duplicated;
+    select string_agg(email_normalized, ', ' order by email_normalized) into emails
+    from (select email_normalized from user_profile where email_normalized is not null
+          group by email_normalized having count(*) > 1) duplicated;
+    if usernames is not null or emails is not null then
+        raise exception 'user_profile has duplicates that must be resolved before upgrading. '
+            'Usernames: %. Emails (case-insensitive): %.',
+            coalesce(usernames, 'none'), coalesce(emails, 'none');
+    end if;
+end
+$$;
+
+do $$
+begin
+    if not exists (select 1 from pg_constraint where conname = 'uk_user_profile_username') then
+        alter table user_profile add constraint uk_user_profile_username unique (username);
+    end if;
+    if not exists (select 1 from pg_constraint where conname = 'uk_user_profile_email_normalized') then
+        alter table user_profile add constraint uk_user_profile_email_normalized unique (email_normalized);
+    end if;
+end
+$$;
+
+create table if not exists user_outbox (
+    id bigint not null,
+    feed_sequence bigint,
+    type varchar(32) not null,
+    username varchar(255),
+    email varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    active boolean,
+    source_shard integer,
+    source_id bigint,
+    created_at timestamp(6) with time zone not null default clock_timestamp(),
+    primary key (id),
+    constraint uk_user_outbox_feed_sequence unique (feed_sequence),
+    constraint uk_user_outbox_source unique (source_shard, source_id)
+);
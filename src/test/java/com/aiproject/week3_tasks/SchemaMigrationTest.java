@@ -0,0 +1,99 @@
+package com.aiproject.week3_tasks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationTest {
+
+    private static final String PRE_FLYWAY_SCHEMA = "create table user_profile ("
+            + "id bigint generated by default as identity, active boolean not null, email varchar(255), "
+            + "first_name varchar(255), last_name varchar(255), username varchar(255), primary key (id))";
+
+    @Test
+    @DisplayName("A database created by ddl-auto=update is upgraded to the migrated schema")
+    void testUpgradePreFlywaySchema() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            DataSource dataSource = postgres.getPostgresDatabase();
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.execute(PRE_FLYWAY_SCHEMA);
+            jdbc.update("insert into user_profile (active, email, username) values "
+                    + "(true, 'Alice@Example.com', 'alice'), (false, 'bob@example.com', 'bob'), (true, null, 'carol')");
+
+            migrate(dataSource);
+
+            assertEquals(Arrays.asList("alice@example.com", "bob@example.com", null), jdbc.queryForList(
+                    "select email_normalized from user_profile order by id", String.class));
+            assertEquals(0, jdbc.queryForObject("select sum(version) from user_profile", Long.class));
+            assertTrue(jdbc.queryForObject("select nextval('user_profile_seq')", Long.class) >= 3 + 50);
+            jdbc.update("insert into user_outbox (id, type, username) values (nextval('user_outbox_seq'), 'CREATED', 'alice')");
+            assertThrows(DataAccessException.class, () -> jdbc.update(
+                    "insert into user_profile (id, active, username, email_normalized) values (100, true, 'dave', 'bob@example.com')"));
+            assertThrows(DataAccessException.class, () -> jdbc.update(
+                    "insert into user_profile (active, username) values (true, 'dave')"));
+        }
+    }
+
+    @Test
+    @DisplayName("The upgrade stops on duplicate usernames and emails without changing any row")
+    void testUpgradeRejectsDuplicates() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            DataSource dataSource = postgres.getPostgresDatabase();
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            jdbc.execute(PRE_FLYWAY_SCHEMA);
+            jdbc.update("insert into user_profile (active, email, username) values "
+                    + "(true, 'Alice@Example.com', 'alice'), (true, 'alice@example.com', 'alice2'), "
+                    + "(false, 'bob@example.com', 'bob'), (true, null, 'bob')");
+
+            FlywayException failure = assertThrows(FlywayException.class, () -> migrate(dataSource));
+
+            assertTrue(failure.getMessage().contains("Usernames: bob. Emails (case-insensitive): alice@example.com."),
+                    failure.getMessage());
+            assertEquals(List.of("alice", "alice2", "bob", "bob"),
+                    jdbc.queryForList("select username from user_profile order by id", String.class));
+            assertEquals(List.of("id", "active", "email", "first_name", "last_name", "username"), jdbc.queryForList(
+                    "select column_name from information_schema.columns where table_name = 'user_profile' "
+                            + "order by ordinal_position", String.class));
+
+            jdbc.update("update user_profile set username = 'bobby' where id = 4");
+            jdbc.update("update user_profile set email = 'alice2@example.com' where id = 2");
+            migrate(dataSource);
+            assertEquals(List.of("alice@example.com", "alice2@example.com", "bob@example.com"), jdbc.queryForList(
+                    "select email_normalized from user_profile where email_normalized is not null order by id",
+                    String.class));
+        }
+    }
+
+    @Test
+    @DisplayName("The upgrade leaves a new database unchanged")
+    void testNewDatabase() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            DataSource dataSource = postgres.getPostgresDatabase();
+
+            migrate(dataSource);
+
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            assertEquals(2, jdbc.queryForObject("select count(*) from flyway_schema_history where success", Integer.class));
+            assertEquals(1, jdbc.queryForObject("select nextval('user_profile_seq')", Long.class));
+        }
+    }
+
+    private static void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,142 @@
+package com.aiproject.week3_tasks;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures time-to-first-request: from launching a JVM with the application to the first
+ * answered {@code GET /api/users}, for the default and the fast-startup configuration. After
+ * {@code mvn -Pfast-startup package} the extracted application is also measured with AOT and
+ * its AppCDS archive. Excluded from the normal build; run it with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmarkTest.class);
+
+    private static final int ROUNDS = 3;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final Path EXTRACTED_APPLICATION = Path.of("target", "application");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Every startup configuration answers its first request")
+    void testTimeToFirstRequest() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            String url = postgres.getJdbcUrl("postgres", "postgres");
+            Map<String, List<String>> configurations = configurations();
+            // Migrates the schema and warms the file cache; not counted.
+            timeToFirstRequest("warm-up", configurations.get("default"), url);
+
+            logger.info(String.format("%-28s %10s %10s", "configuration", "median ms", "min ms"));
+            for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+                long[] millis = new long[ROUNDS];
+                for (int i = 0; i < ROUNDS; i++) {
+                    millis[i] = timeToFirstRequest(configuration.getKey(), configuration.getValue(), url);
+                }
+                Arrays.sort(millis);
+                logger.info(String.format("%-28s %10d %10d", configuration.getKey(), millis[ROUNDS / 2], millis[0]));
+            }
+        }
+    }
+
+    private long timeToFirstRequest(String name, List<String> command, String url) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--spring.datasource.url=" + url);
+        arguments.add("--spring.datasource.username=postgres");
+        arguments.add("--server.port=" + port);
+        Path log = tempDir.resolve(name.replaceAll("\\W+", "-") + ".log");
+        ProcessBuilder builder = new ProcessBuilder(arguments)
+                .directory(tempDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users")).build();
+        long started = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (System.nanoTime() - started < TIMEOUT.toNanos()) {
+                assertTrue(process.isAlive(), () -> name + " exited during startup:\n" + tail(log));
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    assertEquals(200, response.statusCode(), () -> name + " failed its first request:\n" + tail(log));
+                    return millis;
+                } catch (IOException e) {
+                    Thread.sleep(10);
+                }
+            }
+            return fail(name + " did not answer within " + TIMEOUT + ":\n" + tail(log));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static Map<String, List<String>> configurations() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classpath = Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.endsWith("test-classes"))
+                .reduce((a, b) -> a + File.pathSeparator + b)
+                .orElseThrow();
+        String mainClass = Week3TasksApplication.class.getName();
+
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("default", List.of(java, "-cp", classpath, mainClass));
+        configurations.put("fast-startup", List.of(java, "-cp", classpath,
+                "-Dspring.profiles.active=fast-startup", mainClass));
+
+        Path archive = EXTRACTED_APPLICATION.resolve("application.jsa").toAbsolutePath();
+        if (Files.exists(archive)) {
+            Path jar;
+            try (Stream<Path> files = Files.list(EXTRACTED_APPLICATION)) {
+                jar = files.filter(file -> file.toString().endsWith(".jar")).findFirst().orElseThrow();
+            }
+            configurations.put("fast-startup + AOT + AppCDS", List.of(java,
+                    "-XX:SharedArchiveFile=" + archive,
+                    "-Dspring.aot.enabled=true",
+                    "-Dspring.profiles.active=fast-startup",
+                    "-jar", jar.toAbsolutePath().toString()));
+        }
+        return configurations;
+    }
+
+    private static String tail(Path log) {
+        try {
+            List<String> lines = Files.readAllLines(log);
+            return String.join("\n", lines.subList(Math.max(0, lines.size() - 40), lines.size()));
+        } catch (IOException e) {
+            return "(no log: " + e.getMessage() + ")";
+        }
+    }
+}
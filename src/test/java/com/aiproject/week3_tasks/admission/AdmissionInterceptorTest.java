@@ -0,0 +1,64 @@
+package com.aiproject.week3_tasks.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionInterceptorTest {
+
+    private static final String PROXY = "10.0.0.5";
+
+    private AdmissionInterceptor interceptor;
+    private HandlerMethod handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getRateLimit().setPermitsPerSecond(0.001);
+        properties.getRateLimit().setBurst(1);
+        properties.setTrustedProxies(List.of(PROXY));
+        interceptor = new AdmissionInterceptor(new AdmissionControl(properties, new SimpleMeterRegistry()), properties);
+        handler = new HandlerMethod(new Endpoint(), Endpoint.class.getMethod("handle"));
+    }
+
+    @Test
+    @DisplayName("A client id header from an untrusted address does not escape the limit")
+    void testHeaderIgnoredFromUntrustedAddress() throws Exception {
+        assertEquals(200, send("192.0.2.1", "first"));
+        assertEquals(429, send("192.0.2.1", "second"));
+        assertEquals(200, send("192.0.2.2", "second"));
+    }
+
+    @Test
+    @DisplayName("A trusted proxy's client id header selects the bucket")
+    void testHeaderTrustedFromProxy() throws Exception {
+        assertEquals(200, send(PROXY, "first"));
+        assertEquals(429, send(PROXY, "first"));
+        assertEquals(200, send(PROXY, "second"));
+    }
+
+    private int send(String remoteAddress, String clientId) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setRemoteAddr(remoteAddress);
+        request.addHeader("X-Client-Id", clientId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (interceptor.preHandle(request, response, handler)) {
+            interceptor.afterCompletion(request, response, handler, null);
+        }
+        return response.getStatus();
+    }
+
+    @Admission(OperationClass.POINT_READ)
+    static class Endpoint {
+        public void handle() {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.aiproject.week3_tasks.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    @Test
+    @DisplayName("Permits up to the concurrency limit, then rejects when the queue is full")
+    void testRejectsBeyondLimitAndQueue() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(2, 0, 0);
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertEquals(2, bulkhead.getActiveCount());
+
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("A queued caller gets the permit released by a running one")
+    void testQueuedCallerIsAdmittedOnRelease() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5_000);
+        assertTrue(bulkhead.tryAcquire());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> waiter = executor.submit(bulkhead::tryAcquire);
+        while (bulkhead.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+        assertFalse(bulkhead.tryAcquire(), "queue of one is already taken");
+
+        bulkhead.release();
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getQueueDepth());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("A released permit goes to the queued caller, not to a newcomer")
+    void testQueuedCallerGoesFirst() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5_000);
+        assertTrue(bulkhead.tryAcquire());
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        Thread queued = new Thread(() -> {
+            try {
+                waiter.complete(bulkhead.tryAcquire());
+            } catch (InterruptedException e) {
+                waiter.completeExceptionally(e);
+            }
+        });
+        queued.start();
+        while (queued.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+
+        bulkhead.release();
+        boolean newcomer = bulkhead.tryAcquire();
+
+        assertFalse(newcomer, "newcomer took the permit of a queued caller");
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("A queued caller gives up after the wait timeout")
+    void testQueuedCallerTimesOut() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 20);
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(1, bulkhead.getRejectedCount());
+        assertEquals(0, bulkhead.getQueueDepth());
+    }
+}
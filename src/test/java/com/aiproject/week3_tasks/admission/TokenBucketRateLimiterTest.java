@@ -0,0 +1,63 @@
+package com.aiproject.week3_tasks.admission;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    @DisplayName("Allows a burst, then one request per refill interval")
+    void testBurstThenSteadyRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3, 100, clock::get);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("client"));
+        }
+        long wait = limiter.tryAcquire("client");
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, limiter.tryAcquire("client"));
+        assertTrue(limiter.tryAcquire("client") > 0);
+        assertEquals(2, limiter.getRejectedCount());
+    }
+
+    @Test
+    @DisplayName("Clients have independent buckets")
+    void testClientsAreIndependent() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100, clock::get);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    @DisplayName("Idle clients are evicted once the client limit is reached")
+    void testIdleClientsAreEvicted() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 2, clock::get);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        limiter.tryAcquire("c");
+        assertEquals(1, limiter.getTrackedClients());
+    }
+
+    @Test
+    @DisplayName("The least recently seen clients are evicted when every client is active")
+    void testActiveClientsStayWithinLimit() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 20, clock::get);
+        for (int i = 0; i < 100; i++) {
+            clock.addAndGet(1);
+            limiter.tryAcquire("client" + i);
+            assertTrue(limiter.getTrackedClients() <= 20);
+        }
+        // client99 was seen last and keeps its empty bucket.
+        assertTrue(limiter.tryAcquire("client99") > 0);
+    }
+}
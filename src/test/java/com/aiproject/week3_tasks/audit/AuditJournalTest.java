@@ -0,0 +1,126 @@
+package com.aiproject.week3_tasks.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Records written across segment rolls are read back in order")
+    void testWriteAndReadAcrossSegments() throws Exception {
+        try (AuditJournal journal = AuditJournal.open(tempDir, AuditJournal.MIN_SEGMENT_SIZE, 100)) {
+            for (int i = 0; i < 1000; i++) {
+                journal.append(1_000L + i, AuditAction.EMAIL_UPDATED, "user" + i, 1, 0);
+            }
+        }
+        List<AuditRecord> records = new ArrayList<>();
+        AuditJournalReader.read(List.of(tempDir), records::add);
+
+        assertTrue(AuditJournal.segments(tempDir).size() > 1);
+        assertEquals(1000, records.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("user" + i, records.get(i).subject());
+            assertEquals(1_000L + i, records.get(i).timestamp().toEpochMilli());
+            assertEquals(AuditAction.EMAIL_UPDATED, records.get(i).action());
+        }
+    }
+
+    @Test
+    @DisplayName("Only the newest segments are kept, and reopening starts a new segment")
+    void testSegmentRetention() throws Exception {
+        try (AuditJournal journal = AuditJournal.open(tempDir, AuditJournal.MIN_SEGMENT_SIZE, 3)) {
+            for (int i = 0; i < 2000; i++) {
+                journal.append(i, AuditAction.USER_CREATED, "user" + i, 1, 0);
+            }
+        }
+        assertEquals(3, AuditJournal.segments(tempDir).size());
+        Path newest = AuditJournal.segments(tempDir).get(2);
+
+        try (AuditJournal journal = AuditJournal.open(tempDir, AuditJournal.MIN_SEGMENT_SIZE, 3)) {
+            journal.append(0, AuditAction.USER_DELETED, "alice", 1, 0);
+        }
+        List<Path> segments = AuditJournal.segments(tempDir);
+        assertEquals(3, segments.size());
+        assertEquals(newest, segments.get(1));
+    }
+
+    @Test
+    @DisplayName("A full ring buffer drops new entries instead of blocking")
+    void testRingBufferDropsWhenFull() {
+        AuditRingBuffer buffer = new AuditRingBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(i, AuditAction.USER_CREATED, "user" + i, 1, 0);
+        }
+        List<String> drained = new ArrayList<>();
+        assertEquals(4, buffer.drain((millis, action, subject, count, elapsed) -> drained.add(subject)));
+
+        assertEquals(List.of("user0", "user1", "user2", "user3"), drained);
+        assertEquals(2, buffer.getDroppedCount());
+        assertTrue(buffer.offer(6, AuditAction.USER_CREATED, "user6", 1, 0));
+    }
+
+    @Test
+    @DisplayName("Concurrent producers lose no entries while a consumer drains")
+    void testConcurrentProducers() throws Exception {
+        AuditRingBuffer buffer = new AuditRingBuffer(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    while (!buffer.offer(i, AuditAction.NAME_UPDATED, thread + "-" + i, 1, 0)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        Set<String> seen = new HashSet<>();
+        while (seen.size() < 40_000) {
+            buffer.drain((millis, action, subject, count, elapsed) -> assertTrue(seen.add(subject)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    @DisplayName("The audit trail journals every mutation and only sampled reads")
+    void testAuditTrail() throws Exception {
+        AuditTrail trail = new AuditTrail();
+        ReflectionTestUtils.setField(trail, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(trail, "directory", tempDir.toString());
+        ReflectionTestUtils.setField(trail, "readSampleRate", 0.0);
+        trail.start();
+        trail.mutation(AuditAction.USER_CREATED, "alice");
+        trail.mutation(AuditAction.DOMAIN_DEACTIVATED, "example.com", 12);
+        trail.read(AuditAction.USER_READ, "alice", 1, System.nanoTime());
+        trail.stop();
+
+        List<AuditRecord> records = new ArrayList<>();
+        AuditJournalReader.read(List.of(tempDir), records::add);
+        assertEquals(2, records.size());
+        assertEquals(AuditAction.USER_CREATED, records.get(0).action());
+        assertEquals("example.com", records.get(1).subject());
+        assertEquals(12, records.get(1).count());
+    }
+}
@@ -0,0 +1,129 @@
+package com.aiproject.week3_tasks.controller;
+
+import com.aiproject.week3_tasks.model.UserChange;
+import com.aiproject.week3_tasks.model.UserChangePage;
+import com.aiproject.week3_tasks.model.UserChangeType;
+import com.aiproject.week3_tasks.service.UserChangeRelay;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserChangeControllerTest {
+
+    @Mock
+    private UserChangeRelay relay;
+
+    @Spy
+    @InjectMocks
+    private UserChangeController controller;
+
+    private final List<Consumer<List<UserChange>>> subscribers = new CopyOnWriteArrayList<>();
+    private final CountDownLatch unstall = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(relay.subscribe(any())).thenAnswer(invocation -> {
+            Consumer<List<UserChange>> subscriber = invocation.getArgument(0);
+            subscribers.add(subscriber);
+            return (UserChangeRelay.Subscription) () -> subscribers.remove(subscriber);
+        });
+        when(relay.changesSince(anyLong(), anyInt()))
+                .thenAnswer(invocation -> new UserChangePage(List.of(), invocation.getArgument(0)));
+        controller.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        unstall.countDown();
+        controller.stop();
+    }
+
+    @Test
+    @DisplayName("Clients that stop reading do not hold up other streams")
+    void testStalledClientsDoNotDelayOthers() throws Exception {
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        doReturn(new StalledEmitter(), new StalledEmitter(), new StalledEmitter(), new RecordingEmitter(received))
+                .when(controller).newEmitter();
+        for (int i = 0; i < 4; i++) {
+            controller.stream(0L, null);
+        }
+
+        publish(change(1));
+        publish(change(2));
+
+        assertEquals(1L, received.poll(5, TimeUnit.SECONDS));
+        assertEquals(2L, received.poll(5, TimeUnit.SECONDS));
+        // Each stream read its backlog once on connect; the batches were sent as published.
+        verify(relay, timeout(5000).times(4)).changesSince(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("A stream reads changes missing between batches from the table")
+    void testGapIsReadFromTable() throws Exception {
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        doReturn(new RecordingEmitter(received)).when(controller).newEmitter();
+        controller.stream(0L, null);
+        publish(change(1));
+        assertEquals(1L, received.poll(5, TimeUnit.SECONDS));
+        when(relay.changesSince(eq(1L), anyInt())).thenReturn(new UserChangePage(List.of(change(2), change(3)), 3));
+
+        publish(change(3));
+
+        assertEquals(2L, received.poll(5, TimeUnit.SECONDS));
+        assertEquals(3L, received.poll(5, TimeUnit.SECONDS));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private void publish(UserChange... changes) {
+        subscribers.forEach(subscriber -> subscriber.accept(List.of(changes)));
+    }
+
+    private static UserChange change(long sequence) {
+        return new UserChange(sequence, UserChangeType.CREATED, "user" + sequence, null, null, null, true, Instant.now());
+    }
+
+    /**
+     * A client whose socket buffer is full: every send blocks.
+     */
+    private class StalledEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            try {
+                unstall.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Long> received;
+
+        RecordingEmitter(BlockingQueue<Long> received) {
+            this.received = received;
+        }
+
+        @Override
+        public void send(SseEventBuilder event) {
+            String data = event.build().iterator().next().getData().toString();
+            received.add(Long.parseLong(data.substring(data.indexOf("id:") + 3, data.indexOf('\n'))));
+        }
+    }
+}
@@ -3,12 +3,31 @@ package com.aiproject.week3_tasks.legacy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class UserProfileManagerTest {
     private UserProfileManager manager;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     void setUp() {
         manager = new UserProfileManager();
@@ -79,4 +98,132 @@ class UserProfileManagerTest {
         manager.addUser("bob", "bob@example.com");
         assertEquals(2, manager.getUserCount());
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Persisted changes survive a restart through log replay and snapshots")
+    void testRecoveryFromSnapshotAndLog() throws Exception {
+        manager.enablePersistence(tempDir, Duration.ofHours(1));
+        manager.addUser("alice", "alice@example.com");
+        manager.addUser("bob", "bob@example.com");
+        manager.compact();
+        manager.updateEmail("alice", "newalice@example.com");
+        manager.removeUser("bob");
+        manager.addUser("carol", "carol@example.com");
+        manager.close();
+
+        UserProfileManager recovered = new UserProfileManager();
+        recovered.enablePersistence(tempDir, Duration.ofHours(1));
+        assertEquals(2, recovered.getUserCount());
+        assertEquals("newalice@example.com", recovered.getEmail("alice"));
+        assertNull(recovered.getEmail("bob"));
+        assertEquals("carol@example.com", recovered.getEmail("carol"));
+        recovered.close();
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log is discarded on recovery")
+    void testTornLogTailIsTruncated() throws Exception {
+        manager.enablePersistence(tempDir, Duration.ofHours(1));
+        manager.addUser("alice", "alice@example.com");
+        manager.close();
+        Path log;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            log = files.filter(file -> file.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        UserProfileManager recovered = new UserProfileManager();
+        recovered.enablePersistence(tempDir, Duration.ofHours(1));
+        assertEquals(1, recovered.getUserCount());
+        assertTrue(recovered.addUser("bob", "bob@example.com"));
+        recovered.close();
+
+        UserProfileManager again = new UserProfileManager();
+        again.enablePersistence(tempDir, Duration.ofHours(1));
+        assertEquals(2, again.getUserCount());
+        again.close();
+    }
+
+    @Test
+    @DisplayName("An over-long value is rejected without losing the records after it")
+    void testOverLongValueLeavesLogIntact() throws Exception {
+        manager.enablePersistence(tempDir, Duration.ofHours(1));
+        manager.addUser("alice", "alice@example.com");
+        assertThrows(IllegalArgumentException.class, () -> manager.addUser("bob", "b".repeat(70_000)));
+        manager.addUser("carol", "carol@example.com");
+        manager.close();
+
+        UserProfileManager recovered = new UserProfileManager();
+        recovered.enablePersistence(tempDir, Duration.ofHours(1));
+        assertEquals(2, recovered.getUserCount());
+        assertEquals("carol@example.com", recovered.getEmail("carol"));
+        recovered.close();
+    }
+
+    @Test
+    @DisplayName("A failed write fails the log instead of reusing its buffer")
+    void testFailedWriteFailsLog() throws Exception {
+        Path file = tempDir.resolve("failing.log");
+        WriteAheadLog log = new WriteAheadLog(file);
+        long first = log.append(WriteAheadLog.ADD, "alice", "alice@example.com");
+        ((FileChannel) ReflectionTestUtils.getField(log, "channel")).close();
+
+        assertThrows(IOException.class, () -> log.awaitDurable(first));
+        assertThrows(IOException.class, () -> log.append(WriteAheadLog.ADD, "bob", "bob@example.com"));
+        assertThrows(IOException.class, () -> log.awaitDurable(first));
+        assertNotSame(ReflectionTestUtils.getField(log, "pending"), ReflectionTestUtils.getField(log, "spare"));
+    }
+
+    @Test
+    @DisplayName("Records appended after a roll starts go to the new file")
+    void testRollSplitsAtCut() throws Exception {
+        Path first = tempDir.resolve("first.log");
+        Path second = tempDir.resolve("second.log");
+        WriteAheadLog log = new WriteAheadLog(first);
+        log.append(WriteAheadLog.ADD, "alice", "alice@example.com");
+        log.startRoll(second);
+        long afterCut = log.append(WriteAheadLog.ADD, "bob", "bob@example.com");
+
+        log.awaitDurable(afterCut);
+        log.finishRoll();
+        log.append(WriteAheadLog.REMOVE, "alice", null);
+        log.close();
+
+        List<String> firstUsers = new ArrayList<>();
+        List<String> secondUsers = new ArrayList<>();
+        WriteAheadLog.replay(first, entry -> firstUsers.add(entry.username()));
+        WriteAheadLog.replay(second, entry -> secondUsers.add(entry.username()));
+        assertEquals(List.of("alice"), firstUsers);
+        assertEquals(List.of("bob", "alice"), secondUsers);
+    }
+
+    @Test
+    @DisplayName("Concurrent writers sharing group commits lose no changes")
+    void testConcurrentPersistentWrites() throws Exception {
+        manager.enablePersistence(tempDir, Duration.ofHours(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    assertTrue(manager.addUser("user" + thread + "-" + i, "user" + i + "@example.com"));
+                    if (i == 100 && thread == 0) {
+                        manager.compact();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        manager.close();
+
+        UserProfileManager recovered = new UserProfileManager();
+        recovered.enablePersistence(tempDir, Duration.ofHours(1));
+        assertEquals(1600, recovered.getUserCount());
+        recovered.close();
+    }
+}
@@ -0,0 +1,91 @@
+package com.aiproject.week3_tasks.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Stored p99 latency and error rate of each operation, as a properties file:
+ *
+ * <pre>
+ * point-read.p99-ms=12.4
+ * point-read.error-rate=0.0
+ * </pre>
+ * Record it on the machine that runs the load test, since latencies are only comparable on
+ * the same hardware.
+ */
+final class Baseline {
+
+    private static final String P99 = ".p99-ms";
+    private static final String ERROR_RATE = ".error-rate";
+
+    private final Properties values;
+
+    private Baseline(Properties values) {
+        this.values = values;
+    }
+
+    /**
+     * The baseline stored at {@code file}, or empty if there is none yet.
+     */
+    static Optional<Baseline> read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Properties values = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            values.load(reader);
+        }
+        return Optional.of(new Baseline(values));
+    }
+
+    static void write(Path file, Collection<OperationStats> results) throws IOException {
+        // Sorted, so re-recording the baseline gives a readable diff.
+        SortedMap<String, String> values = new TreeMap<>();
+        for (OperationStats stats : results) {
+            if (stats.count() == 0) {
+                continue;
+            }
+            values.put(stats.name() + P99, String.format(Locale.ROOT, "%.2f", stats.percentileMillis(99)));
+            values.put(stats.name() + ERROR_RATE, String.format(Locale.ROOT, "%.5f", stats.errorRate()));
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("# Load test baseline, recorded with -Dload.update-baseline=true\n");
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Describe each operation whose p99 exceeds its baseline by more than
+     * {@code p99Tolerance} (a fraction), or whose error rate exceeds its baseline by more than
+     * {@code errorRateTolerance}. Operations missing from the baseline are not checked.
+     */
+    List<String> regressions(Collection<OperationStats> results, double p99Tolerance, double errorRateTolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (OperationStats stats : results) {
+            String p99 = values.getProperty(stats.name() + P99);
+            if (p99 != null) {
+                double limit = Double.parseDouble(p99) * (1 + p99Tolerance);
+                if (stats.percentileMillis(99) > limit) {
+                    regressions.add(String.format(Locale.ROOT, "%s: p99 %.2f ms exceeds baseline %s ms (limit %.2f ms)",
+                            stats.name(), stats.percentileMillis(99), p99, limit));
+                }
+            }
+            String errorRate = values.getProperty(stats.name() + ERROR_RATE);
+            if (errorRate != null) {
+                double limit = Double.parseDouble(errorRate) + errorRateTolerance;
+                if (stats.errorRate() > limit) {
+                    regressions.add(String.format(Locale.ROOT, "%s: error rate %.5f exceeds baseline %s (limit %.5f)",
+                            stats.name(), stats.errorRate(), errorRate, limit));
+                }
+            }
+        }
+        return regressions;
+    }
+}
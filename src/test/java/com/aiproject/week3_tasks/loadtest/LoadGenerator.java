@@ -0,0 +1,151 @@
+package com.aiproject.week3_tasks.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Sends each {@link Workload} at its fixed rate, whether or not earlier requests have
+ * completed (an open workload model).
+ * <p>
+ * Latency is measured from the time a request was due, not from when a thread got to send it,
+ * so a stalled server shows up as queueing delay instead of fewer, faster samples (coordinated
+ * omission).
+ * </p>
+ */
+final class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * An operation sent {@code ratePerSecond} times per second. {@code request} completes the
+     * given builder, which already carries the timeout.
+     */
+    record Workload(String name, double ratePerSecond, Function<HttpRequest.Builder, HttpRequest> request) {
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final int threads;
+    private final Duration reportInterval;
+
+    LoadGenerator(int threads, Duration reportInterval) {
+        this.threads = threads;
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Run {@code workloads} for {@code duration}, logging a progress line every report
+     * interval, and return the statistics of each workload by name.
+     */
+    Map<String, OperationStats> run(String label, List<Workload> workloads, Duration duration) throws InterruptedException {
+        Map<String, OperationStats> stats = new LinkedHashMap<>();
+        for (Workload workload : workloads) {
+            stats.put(workload.name(), new OperationStats(workload.name()));
+        }
+        Recorder interval = new Recorder(3);
+        AtomicLong intervalErrors = new AtomicLong();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "load-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long started = System.nanoTime();
+        logger.info(String.format("%-8s %8s %10s %10s %10s %10s %8s", label, "elapsed", "req/s", "p50 ms", "p99 ms", "max ms", "errors"));
+        reporter.scheduleAtFixedRate(() -> {
+            Histogram histogram = interval.getIntervalHistogram();
+            logger.info(String.format("%-8s %7ds %10.1f %10.2f %10.2f %10.2f %8d", label,
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started),
+                    histogram.getTotalCount() / (reportInterval.toNanos() / 1e9),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    intervalErrors.getAndSet(0)));
+        }, reportInterval.toNanos(), reportInterval.toNanos(), TimeUnit.NANOSECONDS);
+
+        long[] periods = new long[workloads.size()];
+        long[] nextDue = new long[workloads.size()];
+        for (int i = 0; i < workloads.size(); i++) {
+            double rate = workloads.get(i).ratePerSecond();
+            periods[i] = rate > 0 ? (long) (1e9 / rate) : Long.MAX_VALUE;
+            nextDue[i] = rate > 0 ? started : Long.MAX_VALUE;
+        }
+        long end = started + duration.toNanos();
+        try {
+            while (true) {
+                int next = 0;
+                for (int i = 1; i < nextDue.length; i++) {
+                    if (nextDue[i] < nextDue[next]) {
+                        next = i;
+                    }
+                }
+                long due = nextDue[next];
+                if (due >= end) {
+                    break;
+                }
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+                Workload workload = workloads.get(next);
+                OperationStats operation = stats.get(workload.name());
+                executor.execute(() -> send(workload, operation, due, interval, intervalErrors));
+                nextDue[next] += periods[next];
+            }
+        } finally {
+            executor.shutdown();
+            if (!executor.awaitTermination(REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+            reporter.shutdownNow();
+        }
+        return stats;
+    }
+
+    private void send(Workload workload, OperationStats operation, long due, Recorder interval, AtomicLong intervalErrors) {
+        HttpRequest request = workload.request().apply(HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT));
+        try {
+            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            long micros = micros(due);
+            operation.record(micros, status);
+            interval.recordValue(micros);
+            if (status < 200 || status >= 300) {
+                intervalErrors.incrementAndGet();
+            }
+        } catch (IOException e) {
+            long micros = micros(due);
+            operation.recordFailure(micros);
+            interval.recordValue(micros);
+            intervalErrors.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long micros(long due) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+    }
+}
@@ -0,0 +1,67 @@
+package com.aiproject.week3_tasks.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Load test settings, read from system properties.
+ *
+ * <pre>
+ * load.duration=PT1M                  measured run; use e.g. PT30M for a soak test
+ * load.warmup=PT15S                   run before measuring, not recorded
+ * load.report-interval=PT10S          interval of the progress lines
+ * load.threads=32                     concurrent requests at most
+ * load.seed-users=2000                users created before the run
+ * load.rate.point-read=200            requests per second of each operation
+ * load.rate.create=20
+ * load.rate.bulk-deactivate=0.2
+ * load.rate.export=0.5
+ * load.rate.report=0.5
+ * load.baseline=src/test/resources/loadtest/baseline.properties
+ * load.p99-tolerance=0.25             allowed p99 increase over the baseline, as a fraction
+ * load.error-rate-tolerance=0.001     allowed error rate increase over the baseline
+ * load.update-baseline=false          record this run as the new baseline instead of comparing
+ * </pre>
+ */
+record LoadTestSettings(Duration duration,
+                        Duration warmup,
+                        Duration reportInterval,
+                        int threads,
+                        int seedUsers,
+                        double pointReadRate,
+                        double createRate,
+                        double bulkDeactivateRate,
+                        double exportRate,
+                        double reportRate,
+                        Path baseline,
+                        double p99Tolerance,
+                        double errorRateTolerance,
+                        boolean updateBaseline) {
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                duration("load.duration", "PT1M"),
+                duration("load.warmup", "PT15S"),
+                duration("load.report-interval", "PT10S"),
+                Integer.getInteger("load.threads", 32),
+                Integer.getInteger("load.seed-users", 2000),
+                decimal("load.rate.point-read", 200),
+                decimal("load.rate.create", 20),
+                decimal("load.rate.bulk-deactivate", 0.2),
+                decimal("load.rate.export", 0.5),
+                decimal("load.rate.report", 0.5),
+                Path.of(System.getProperty("load.baseline", "src/test/resources/loadtest/baseline.properties")),
+                decimal("load.p99-tolerance", 0.25),
+                decimal("load.error-rate-tolerance", 0.001),
+                Boolean.getBoolean("load.update-baseline"));
+    }
+
+    private static Duration duration(String key, String defaultValue) {
+        return Duration.parse(System.getProperty(key, defaultValue));
+    }
+
+    private static double decimal(String key, double defaultValue) {
+        String value = System.getProperty(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+}
@@ -0,0 +1,61 @@
+package com.aiproject.week3_tasks.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram (microseconds, 3 significant digits) and error counts of one operation.
+ * Any response other than 2xx is an error; {@code 429} and {@code 503} from admission control
+ * are also counted as rejected.
+ */
+final class OperationStats {
+
+    private final String name;
+    private final Histogram latency = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyMicros, int status) {
+        latency.recordValue(latencyMicros);
+        if (status < 200 || status >= 300) {
+            errors.increment();
+            if (status == 429 || status == 503) {
+                rejected.increment();
+            }
+        }
+    }
+
+    void recordFailure(long latencyMicros) {
+        latency.recordValue(latencyMicros);
+        errors.increment();
+    }
+
+    String name() { return name; }
+    long count() { return latency.getTotalCount(); }
+    long errors() { return errors.sum(); }
+    long rejected() { return rejected.sum(); }
+
+    double errorRate() {
+        long count = count();
+        return count == 0 ? 0 : (double) errors() / count;
+    }
+
+    double percentileMillis(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double maxMillis() {
+        return latency.getMaxValue() / 1000.0;
+    }
+
+    double throughput(Duration duration) {
+        return count() / (duration.toNanos() / 1e9);
+    }
+}
@@ -0,0 +1,149 @@
+package com.aiproject.week3_tasks.loadtest;
+
+import com.aiproject.week3_tasks.model.UserCreationRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives a mix of point reads, creates, bulk deactivations, exports and report jobs against
+ * the application on an embedded Postgres, then compares each operation's p99 latency and
+ * error rate with the stored {@link Baseline}.
+ * <p>
+ * Excluded from the normal build; run it with {@code mvn -Pload-test test}. Rates, duration
+ * and tolerances are system properties (see {@link LoadTestSettings}). A soak test is the
+ * same run with a long {@code load.duration}; the progress lines show whether latency or
+ * errors creep up over time. {@code -Dload.update-baseline=true} records the run as the new
+ * baseline; without a baseline the test fails.
+ * </p>
+ * <p>
+ * Every request comes from one address, so the per-client rate limit is raised above the
+ * offered load; the bulkheads still apply and show up as rejected requests.
+ * </p>
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "admission.rate-limit.permits-per-second=100000",
+        "admission.rate-limit.burst=100000"})
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+class UserServiceLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserServiceLoadTest.class);
+    private static final int SEED_DOMAINS = 20;
+    private static final int SEED_BATCH_SIZE = 500;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicInteger deactivatedDomain = new AtomicInteger();
+
+    @Test
+    @DisplayName("Mixed workload stays within the baseline p99 latency and error rate")
+    void testMixedWorkload() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        URI base = URI.create("http://localhost:" + port);
+        List<String> usernames = seedUsers(base, settings.seedUsers());
+        List<LoadGenerator.Workload> workloads = workloads(base, settings, usernames);
+        LoadGenerator generator = new LoadGenerator(settings.threads(), settings.reportInterval());
+
+        generator.run("warmup", workloads, settings.warmup());
+        Map<String, OperationStats> results = generator.run("measure", workloads, settings.duration());
+
+        logger.info(String.format("%-16s %8s %8s %9s %9s %9s %9s %9s %7s %8s", "operation", "count", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "rejected"));
+        for (OperationStats stats : results.values()) {
+            logger.info(String.format(Locale.ROOT, "%-16s %8d %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %8d", stats.name(),
+                    stats.count(), stats.throughput(settings.duration()), stats.percentileMillis(50),
+                    stats.percentileMillis(90), stats.percentileMillis(99), stats.percentileMillis(99.9),
+                    stats.maxMillis(), stats.errors(), stats.rejected()));
+        }
+
+        if (settings.updateBaseline()) {
+            Baseline.write(settings.baseline(), results.values());
+            logger.info("Recorded baseline {}", settings.baseline().toAbsolutePath());
+            return;
+        }
+        Optional<Baseline> baseline = Baseline.read(settings.baseline());
+        assertTrue(baseline.isPresent(), "No baseline at " + settings.baseline()
+                + "; record one with -Dload.update-baseline=true");
+        List<String> regressions = baseline.get().regressions(results.values(),
+                settings.p99Tolerance(), settings.errorRateTolerance());
+        assertTrue(regressions.isEmpty(), String.join("\n", regressions));
+    }
+
+    private List<LoadGenerator.Workload> workloads(URI base, LoadTestSettings settings, List<String> usernames) {
+        return List.of(
+                new LoadGenerator.Workload("point-read", settings.pointReadRate(), request -> request
+                        .uri(base.resolve("/api/users/" + usernames.get(ThreadLocalRandom.current().nextInt(usernames.size()))))
+                        .GET().build()),
+                new LoadGenerator.Workload("create", settings.createRate(), request -> {
+                    long n = createdCount.incrementAndGet();
+                    return json(request.uri(base.resolve("/api/users")),
+                            new UserCreationRequest("load" + n, "load" + n + "@create.load.example", "Load", "Test"));
+                }),
+                new LoadGenerator.Workload("bulk-deactivate", settings.bulkDeactivateRate(), request -> request
+                        .uri(base.resolve("/api/users/deactivate-by-domain?domain=" + domain(deactivatedDomain.getAndIncrement())))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build()),
+                new LoadGenerator.Workload("export", settings.exportRate(), request -> request
+                        .uri(base.resolve("/api/users/export?format=CSV")).GET().build()),
+                new LoadGenerator.Workload("report", settings.reportRate(), request -> request
+                        .uri(base.resolve("/api/reports/jobs?type=COMPREHENSIVE&daysRecent=30"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build()));
+    }
+
+    private List<String> seedUsers(URI base, int count) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<String> usernames = new ArrayList<>(count);
+        List<UserCreationRequest> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            String username = "seed" + i;
+            usernames.add(username);
+            batch.add(new UserCreationRequest(username, username + "@" + domain(i), "Seed", "User" + i));
+            if (batch.size() == SEED_BATCH_SIZE || i == count - 1) {
+                HttpResponse<String> response = client.send(
+                        json(HttpRequest.newBuilder(base.resolve("/api/users/batch")), batch),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(200, response.statusCode(), response.body());
+                batch.clear();
+            }
+        }
+        return usernames;
+    }
+
+    private HttpRequest json(HttpRequest.Builder request, Object body) {
+        try {
+            return request.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String domain(int index) {
+        return "d" + (index % SEED_DOMAINS) + ".load.example";
+    }
+}
@@ -0,0 +1,107 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.legacy.UserProfileManager;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import com.aiproject.week3_tasks.sharding.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class LegacyMigrationServiceTest {
+
+    @Spy
+    private UserProfileManager legacyManager = new UserProfileManager();
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private ShardRouter shards = new ShardRouter();
+    @Mock
+    private UserProfileRepository repository;
+    @Mock
+    private UserProfileService userProfileService;
+
+    @InjectMocks
+    private LegacyMigrationService migrationService;
+
+    private final StoredUsers migrated = new StoredUsers();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userProfileService.insertNewUsers(anyList())).thenAnswer(invocation -> migrated.insert(invocation.getArgument(0)));
+        migrationService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        migrationService.stop();
+    }
+
+    @Test
+    @DisplayName("A legacy hit is served at once and concurrent misses share one migration")
+    void testReadThroughIsSingleFlight() throws Exception {
+        legacyManager.addUser("alice", "alice@example.com");
+        CountDownLatch release = new CountDownLatch(1);
+        when(userProfileService.insertNewUsers(anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of();
+        });
+
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        List<Future<Optional<UserProfile>>> reads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reads.add(readers.submit(() -> migrationService.readThrough("alice")));
+        }
+        for (Future<Optional<UserProfile>> read : reads) {
+            assertEquals("alice@example.com", read.get(5, TimeUnit.SECONDS).orElseThrow().getEmail());
+        }
+        readers.shutdown();
+
+        verify(userProfileService, timeout(1000).times(1)).insertNewUsers(anyList());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("A user missing from both stores is not found")
+    void testReadThroughMiss() {
+        assertTrue(migrationService.readThrough("ghost").isEmpty());
+        assertFalse(migrationService.migrate("ghost"));
+        verify(userProfileService, never()).insertNewUsers(anyList());
+    }
+
+    @Test
+    @DisplayName("The trickle migrator copies at most the configured rate per step and then completes")
+    void testTrickleRespectsRateAndCompletes() {
+        for (int i = 0; i < 5; i++) {
+            legacyManager.addUser("user" + i, "user" + i + "@example.com");
+        }
+        ReflectionTestUtils.setField(migrationService, "trickleRate", 2);
+
+        migrationService.trickle();
+        assertEquals(2, migrated.size());
+        migrationService.trickle();
+        migrationService.trickle();
+        assertEquals(5, migrated.size());
+        assertFalse(migrationService.isComplete());
+
+        migrationService.trickle();
+        assertTrue(migrationService.isComplete());
+        assertEquals(5.0, meterRegistry.get("legacy.migration.migrated").tag("trigger", "trickle").functionCounter().count());
+    }
+}
@@ -0,0 +1,186 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.ReportJobStatus;
+import com.aiproject.week3_tasks.model.ReportSnapshot;
+import com.aiproject.week3_tasks.model.ReportType;
+import com.aiproject.week3_tasks.model.UserChange;
+import com.aiproject.week3_tasks.model.UserChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ReportJobServiceTest {
+
+    @Mock
+    private UserProfileService userProfileService;
+    @Spy
+    private UserDataVersion dataVersion = new UserDataVersion();
+
+    @InjectMocks
+    private ReportJobService reportJobService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userProfileService.generateComprehensiveUserReport(anyInt())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "report v" + dataVersion.current();
+        });
+        reportJobService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportJobService.stop();
+    }
+
+    @Test
+    @DisplayName("Identical in-flight requests share one job")
+    void testConcurrentRequestsAreCoalesced() throws Exception {
+        ReportJobStatus first = reportJobService.submit(ReportType.COMPREHENSIVE, 30);
+        ReportJobStatus second = reportJobService.submit(ReportType.COMPREHENSIVE, 30);
+        assertEquals(ReportJobStatus.State.RUNNING, first.state());
+        assertEquals(first.jobId(), second.jobId());
+
+        release.countDown();
+        ReportJobStatus done = awaitCompletion(first.jobId());
+
+        assertEquals(ReportJobStatus.State.DONE, done.state());
+        assertEquals("report v0", done.snapshot().content());
+        verify(userProfileService, times(1)).generateComprehensiveUserReport(30);
+    }
+
+    @Test
+    @DisplayName("A current snapshot answers a request without recomputing")
+    void testCurrentSnapshotIsReused() throws Exception {
+        release.countDown();
+        awaitCompletion(reportJobService.submit(ReportType.COMPREHENSIVE, 30).jobId());
+
+        ReportJobStatus cached = reportJobService.submit(ReportType.COMPREHENSIVE, 30);
+
+        assertEquals(ReportJobStatus.State.DONE, cached.state());
+        verify(userProfileService, times(1)).generateComprehensiveUserReport(30);
+    }
+
+    @Test
+    @DisplayName("A stale snapshot is served while a refresh runs")
+    void testStaleWhileRevalidate() throws Exception {
+        release.countDown();
+        awaitCompletion(reportJobService.submit(ReportType.COMPREHENSIVE, 30).jobId());
+        dataVersion.recordLocalChange();
+
+        Optional<ReportSnapshot> stale = reportJobService.getLatest(ReportType.COMPREHENSIVE, 30);
+
+        assertTrue(stale.isPresent());
+        assertTrue(reportJobService.isStale(stale.get()));
+        verify(userProfileService, timeout(5_000).times(2)).generateComprehensiveUserReport(30);
+    }
+
+    @Test
+    @DisplayName("A batch on the shared change feed marks snapshots stale")
+    void testChangeFeedMarksSnapshotsStale() throws Exception {
+        UserChangeRelay relay = mock(UserChangeRelay.class);
+        ArgumentCaptor<Consumer<List<UserChange>>> subscriber = ArgumentCaptor.captor();
+        when(relay.subscribe(subscriber.capture())).thenReturn(() -> { });
+        ReflectionTestUtils.setField(dataVersion, "changeRelay", relay);
+        dataVersion.start();
+        release.countDown();
+        ReportSnapshot snapshot = awaitCompletion(reportJobService.submit(ReportType.COMPREHENSIVE, 30).jobId()).snapshot();
+
+        // A change committed by another instance, published by the relay.
+        subscriber.getValue().accept(List.of(new UserChange(1, UserChangeType.CREATED, "remote",
+                "remote@example.com", null, null, true, Instant.now())));
+
+        assertTrue(reportJobService.isStale(snapshot));
+    }
+
+    @Test
+    @DisplayName("With a change feed, a local change is counted once, when its batch is published")
+    void testLocalChangeCountedOnceWithChangeFeed() {
+        UserChangeRelay relay = mock(UserChangeRelay.class);
+        ArgumentCaptor<Consumer<List<UserChange>>> subscriber = ArgumentCaptor.captor();
+        when(relay.subscribe(subscriber.capture())).thenReturn(() -> { });
+        ReflectionTestUtils.setField(dataVersion, "changeRelay", relay);
+        dataVersion.start();
+
+        dataVersion.recordLocalChange();
+        assertEquals(0, dataVersion.current());
+        subscriber.getValue().accept(List.of(new UserChange(1, UserChangeType.CREATED, "local",
+                "local@example.com", null, null, true, Instant.now())));
+        assertEquals(1, dataVersion.current());
+    }
+
+    @Test
+    @DisplayName("Requests answered by a current snapshot share its finished job")
+    void testCurrentSnapshotRequestsShareOneJob() throws Exception {
+        release.countDown();
+        String jobId = reportJobService.submit(ReportType.COMPREHENSIVE, 30).jobId();
+        awaitCompletion(jobId);
+
+        for (int i = 0; i < 100; i++) {
+            ReportJobStatus cached = reportJobService.submit(ReportType.COMPREHENSIVE, 30);
+            assertEquals(jobId, cached.jobId());
+            assertEquals(ReportJobStatus.State.DONE, cached.state());
+        }
+
+        Map<?, ?> jobs = (Map<?, ?>) ReflectionTestUtils.getField(reportJobService, "jobs");
+        assertEquals(1, jobs.size());
+    }
+
+    @Test
+    @DisplayName("Reject daysRecent outside the supported range")
+    void testRejectDaysRecentOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> reportJobService.submit(ReportType.COMPREHENSIVE, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> reportJobService.getLatest(ReportType.COMPREHENSIVE, ReportJobService.MAX_DAYS_RECENT + 1));
+        verify(userProfileService, never()).generateComprehensiveUserReport(anyInt());
+    }
+
+    @Test
+    @DisplayName("Only the most recently generated snapshots are kept")
+    void testOldSnapshotsAreEvicted() throws Exception {
+        ReflectionTestUtils.setField(reportJobService, "maxSnapshots", 2);
+        release.countDown();
+        for (int days = 1; days <= 3; days++) {
+            awaitCompletion(reportJobService.submit(ReportType.COMPREHENSIVE, days).jobId());
+            Thread.sleep(5);
+        }
+
+        reportJobService.submit(ReportType.COMPREHENSIVE, 3);
+        reportJobService.submit(ReportType.COMPREHENSIVE, 1);
+
+        verify(userProfileService, times(1)).generateComprehensiveUserReport(3);
+        verify(userProfileService, timeout(5_000).times(2)).generateComprehensiveUserReport(1);
+    }
+
+    private ReportJobStatus awaitCompletion(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ReportJobStatus status = reportJobService.getJob(jobId).orElseThrow();
+        while (status.state() == ReportJobStatus.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = reportJobService.getJob(jobId).orElseThrow();
+        }
+        return status;
+    }
+}
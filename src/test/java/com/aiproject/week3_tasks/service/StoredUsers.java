@@ -0,0 +1,52 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.UserProfile;
+
+import java.util.*;
+
+/**
+ * In-memory stand-in for the users table behind {@link UserProfileService#insertNewUsers}, for
+ * tests that mock the service. Users are kept in insertion order; safe for concurrent callers.
+ *
+ * <pre>
+ * when(userProfileService.insertNewUsers(anyList())).thenAnswer(invocation -> stored.insert(invocation.getArgument(0)));
+ * </pre>
+ */
+final class StoredUsers {
+
+    private final Map<String, UserProfile> users = new LinkedHashMap<>();
+
+    /**
+     * Store {@code batch}, skipping users whose username is already stored, and report the
+     * skipped ones as {@link UserProfileService#insertNewUsers} does.
+     */
+    synchronized Map<String, String> insert(List<UserProfile> batch) {
+        Map<String, String> skipped = new HashMap<>();
+        for (UserProfile user : batch) {
+            if (users.putIfAbsent(user.getUsername(), user) != null) {
+                skipped.put(user.getUsername(), UserProfileService.USERNAME_EXISTS);
+            }
+        }
+        return skipped;
+    }
+
+    synchronized void add(UserProfile user) {
+        users.put(user.getUsername(), user);
+    }
+
+    void add(String username) {
+        add(new UserProfile(username, null, null, null));
+    }
+
+    synchronized UserProfile get(String username) {
+        return users.get(username);
+    }
+
+    synchronized List<String> usernames() {
+        return new ArrayList<>(users.keySet());
+    }
+
+    synchronized int size() {
+        return users.size();
+    }
+}
@@ -0,0 +1,118 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.UserChange;
+import com.aiproject.week3_tasks.model.UserChangeEvent;
+import com.aiproject.week3_tasks.model.UserChangeType;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserOutboxRepository;
+import com.aiproject.week3_tasks.sharding.ShardRouter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserChangeRelayTest {
+
+    @Mock
+    private UserOutboxRepository outboxRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private EntityManager entityManager;
+    @Spy
+    private ShardRouter shards = new ShardRouter();
+
+    @InjectMocks
+    private UserChangeRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("The lock holder publishes numbered batches to subscribers in sequence order")
+    void testPublishesBatchInOrder() {
+        when(outboxRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxRepository.publishNextBatch(anyInt()))
+                .thenReturn(List.of(event(2, "bob"), event(1, "alice")))
+                .thenReturn(List.of());
+        List<List<UserChange>> delivered = new ArrayList<>();
+        relay.subscribe(delivered::add);
+
+        assertEquals(2, relay.relayOnce());
+        assertEquals(0, relay.relayOnce());
+
+        assertEquals(1, delivered.size());
+        assertEquals(List.of(1L, 2L), delivered.get(0).stream().map(UserChange::sequence).toList());
+        assertEquals(2, relay.getPublishedSequence());
+    }
+
+    @Test
+    @DisplayName("Without the lock the relay reads what another instance published")
+    void testFollowsPublishedEventsWithoutLock() {
+        when(outboxRepository.tryRelayLock(anyLong())).thenReturn(false);
+        when(outboxRepository.findPublishedAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(event(1, "alice"), event(2, "bob")));
+
+        assertEquals(2, relay.relayOnce());
+
+        verify(outboxRepository, never()).publishNextBatch(anyInt());
+        assertEquals(2, relay.getPublishedSequence());
+    }
+
+    @Test
+    @DisplayName("A waiter completes once a change after its sequence number is published")
+    void testWhenPublishedAfterCompletes() {
+        when(outboxRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxRepository.publishNextBatch(anyInt()))
+                .thenReturn(List.of(event(1, "alice")))
+                .thenReturn(List.of(event(2, "bob")));
+        CompletableFuture<Void> waiting = relay.whenPublishedAfter(1);
+
+        relay.relayOnce();
+        assertFalse(waiting.isDone());
+        relay.relayOnce();
+        assertTrue(waiting.isDone());
+        assertTrue(relay.whenPublishedAfter(1).isDone());
+    }
+
+    @Test
+    @DisplayName("Closing a subscription stops delivery")
+    void testUnsubscribe() {
+        when(outboxRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxRepository.publishNextBatch(anyInt())).thenReturn(List.of(event(1, "alice")));
+        List<List<UserChange>> delivered = new ArrayList<>();
+        UserChangeRelay.Subscription subscription = relay.subscribe(delivered::add);
+        subscription.close();
+
+        relay.relayOnce();
+
+        assertTrue(delivered.isEmpty());
+    }
+
+    private static UserChangeEvent event(long sequence, String username) {
+        UserChangeEvent event = new UserChangeEvent(UserChangeType.CREATED,
+                new UserProfile(username, username + "@example.com", null, null));
+        ReflectionTestUtils.setField(event, "feedSequence", sequence);
+        return event;
+    }
+}
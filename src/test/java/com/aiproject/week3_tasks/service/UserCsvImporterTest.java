@@ -0,0 +1,121 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.exception.InvalidUserException;
+import com.aiproject.week3_tasks.model.CsvImportReport;
+import com.aiproject.week3_tasks.model.UserProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+class UserCsvImporterTest {
+
+    @Mock
+    private UserProfileService userProfileService;
+
+    @InjectMocks
+    private UserCsvImporter importer;
+
+    @TempDir
+    Path tempDir;
+
+    private final StoredUsers stored = new StoredUsers();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userProfileService.insertNewUsers(anyList())).thenAnswer(invocation -> stored.insert(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Import valid rows and report invalid and duplicate lines by line number")
+    void testImportReportsPerLineErrors() throws Exception {
+        stored.add("carol");
+        Path file = tempDir.resolve("users.csv");
+        Files.writeString(file, UserCsvImporter.HEADER + "\n"
+                + "alice,alice@example.com,Alice,Smith\n"
+                + "bob,not-an-email,Bob,Jones\n"
+                + "carol,carol@example.com,,\n"
+                + "too,few,columns\n"
+                + ",nobody@example.com,,\r\n"
+                + "dave,dave@example.com,Dave,\n");
+
+        CsvImportReport report = importer.importFromCsv(file);
+
+        assertEquals(6, report.rows());
+        assertEquals(2, report.created());
+        assertEquals(1, report.duplicates());
+        assertEquals(3, report.invalid());
+        List<Long> lines = report.errors().stream().map(CsvImportReport.LineError::line).toList();
+        assertEquals(List.of(3L, 4L, 5L, 6L), lines);
+        assertTrue(stored.usernames().containsAll(List.of("alice", "dave")));
+    }
+
+    @Test
+    @DisplayName("Import a file large enough to be split across workers")
+    void testImportAcrossSegments() throws Exception {
+        Path file = tempDir.resolve("large.csv");
+        StringBuilder csv = new StringBuilder(UserCsvImporter.HEADER).append('\n');
+        for (int i = 0; i < 5_000; i++) {
+            csv.append("user").append(i).append(",user").append(i).append("@example.com,First,Last\n");
+        }
+        Files.writeString(file, csv);
+
+        CsvImportReport report = importer.importFromCsv(file);
+
+        assertEquals(5_000, report.rows());
+        assertEquals(5_000, report.created());
+        assertTrue(report.errors().isEmpty());
+        assertEquals(5_000, stored.size());
+    }
+
+    @Test
+    @DisplayName("A failed batch is reported against its lines and the import continues")
+    void testFailedBatchIsReportedPerLine() throws Exception {
+        when(userProfileService.insertNewUsers(anyList())).thenAnswer(invocation -> {
+            List<UserProfile> users = invocation.getArgument(0);
+            if (users.stream().anyMatch(user -> user.getUsername().equals("racer"))) {
+                throw new DataIntegrityViolationException("duplicate key value violates unique constraint");
+            }
+            users.forEach(stored::add);
+            return Map.of();
+        });
+        Path file = tempDir.resolve("racing.csv");
+        StringBuilder csv = new StringBuilder(UserCsvImporter.HEADER).append('\n')
+                .append("racer,racer@example.com,,\n");
+        for (int i = 0; i < 1_499; i++) {
+            csv.append("user").append(i).append(",user").append(i).append("@example.com,First,Last\n");
+        }
+        Files.writeString(file, csv);
+
+        CsvImportReport report = importer.importFromCsv(file);
+
+        assertEquals(1_500, report.rows());
+        assertTrue(report.failed() > 0 && report.failed() <= 500, "failed " + report.failed());
+        assertEquals(1_500 - report.failed(), report.created());
+        assertEquals(report.failed(), report.errors().size());
+        assertEquals(2L, report.errors().get(0).line());
+        assertTrue(report.errors().get(0).message().startsWith("Insert failed"));
+        assertEquals(report.created(), stored.size());
+    }
+
+    @Test
+    @DisplayName("Reject a file without the export header")
+    void testRejectMissingHeader() throws Exception {
+        Path file = tempDir.resolve("noheader.csv");
+        Files.writeString(file, "alice,alice@example.com,Alice,Smith\n");
+        assertThrows(InvalidUserException.class, () -> importer.importFromCsv(file));
+    }
+}
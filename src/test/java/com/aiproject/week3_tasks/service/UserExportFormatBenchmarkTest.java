@@ -0,0 +1,41 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.ExportFormat;
+import com.aiproject.week3_tasks.model.UserProfile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Logs size and encoding time of each {@link ExportFormat} against plain CSV on a large
+ * synthetic user table. Excluded from the normal build; run it with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class UserExportFormatBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportFormatBenchmarkTest.class);
+    private static final int USERS = 50_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    @DisplayName("Measure size and encoding time of every export format")
+    void testFormatSizesAndTimes() throws IOException {
+        List<UserProfile> users = UserExportFormatTest.syntheticUsers(USERS);
+        int csvSize = UserExportFormatTest.encode(ExportFormat.CSV, users).length;
+        for (ExportFormat format : ExportFormat.values()) {
+            int size = UserExportFormatTest.encode(format, users).length;
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                UserExportFormatTest.encode(format, users);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+            logger.info(String.format("%-12s %12d bytes %6.1f%% of CSV %8.1f ms/export",
+                    format, size, 100.0 * size / csvSize, millis));
+        }
+    }
+}
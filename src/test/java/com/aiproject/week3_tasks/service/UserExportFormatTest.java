@@ -0,0 +1,101 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.ExportFormat;
+import com.aiproject.week3_tasks.model.UserProfile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the size of each {@link ExportFormat} against plain CSV on a small synthetic user
+ * table, and that the binary format reads back unchanged. Encoding times are measured by
+ * {@link UserExportFormatBenchmarkTest}.
+ */
+class UserExportFormatTest {
+
+    private static final int USERS = 2_000;
+
+    @Test
+    @DisplayName("Compressed and binary exports are smaller than CSV")
+    void testFormatSizes() throws IOException {
+        List<UserProfile> users = syntheticUsers(USERS);
+        Map<ExportFormat, Integer> sizes = new EnumMap<>(ExportFormat.class);
+        for (ExportFormat format : ExportFormat.values()) {
+            sizes.put(format, encode(format, users).length);
+        }
+
+        assertTrue(sizes.get(ExportFormat.BINARY) < sizes.get(ExportFormat.CSV));
+        assertTrue(sizes.get(ExportFormat.CSV_GZIP) < sizes.get(ExportFormat.CSV));
+        assertTrue(sizes.get(ExportFormat.BINARY_GZIP) < sizes.get(ExportFormat.BINARY));
+    }
+
+    @Test
+    @DisplayName("Binary export reads back the same users")
+    void testBinaryRoundTrip() throws IOException {
+        List<UserProfile> users = syntheticUsers(USERS);
+        assertReadsBack(users, encode(ExportFormat.BINARY_GZIP, users));
+    }
+
+    @Test
+    @DisplayName("Binary export reads back a user without a username")
+    void testBinaryRoundTripWithoutUsername() throws IOException {
+        List<UserProfile> users = List.of(
+                new UserProfile(null, "nameless@example.com", "No", "Name"),
+                new UserProfile("named", "named@example.com", null, null));
+        assertReadsBack(users, encode(ExportFormat.BINARY, users));
+    }
+
+    private static void assertReadsBack(List<UserProfile> users, byte[] encoded) throws IOException {
+        byte[] raw = encoded;
+        if (encoded[0] == (byte) 0x1f && encoded[1] == (byte) 0x8b) {
+            raw = new GZIPInputStream(new ByteArrayInputStream(encoded)).readAllBytes();
+        }
+        UserBinaryCodec.Reader reader = new UserBinaryCodec.Reader(new ByteArrayInputStream(raw));
+        for (UserProfile expected : users) {
+            UserProfile actual = reader.next();
+            assertNotNull(actual);
+            assertEquals(expected.getUsername(), actual.getUsername());
+            assertEquals(expected.getEmail(), actual.getEmail());
+            assertEquals(expected.getFirstName(), actual.getFirstName());
+            assertEquals(expected.getLastName(), actual.getLastName());
+            assertEquals(expected.isActive(), actual.isActive());
+        }
+        assertNull(reader.next());
+    }
+
+    static byte[] encode(ExportFormat format, List<UserProfile> users) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserExportService.RecordWriter writer = UserExportService.openWriter(format, out);
+        for (UserProfile user : users) {
+            writer.write(user);
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    static List<UserProfile> syntheticUsers(int count) {
+        Random random = new Random(42);
+        String[] domains = {"example.com", "mail.example.org", "corp.example.net", "legacy.example.io"};
+        String[] firstNames = {"Alice", "Bob", "Carol", "Dave", "Eve", "Mallory", null};
+        String[] lastNames = {"Smith", "Jones", "Brown", "Taylor", null};
+        List<UserProfile> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String username = (i % 10 == 0 ? "legacy_" : "user") + i;
+            String email = i % 97 == 0 ? null
+                    : i % 89 == 0 ? "no-at-sign-" + i
+                    : username + "@" + domains[random.nextInt(domains.length)];
+            UserProfile user = new UserProfile(username, email,
+                    firstNames[random.nextInt(firstNames.length)], lastNames[random.nextInt(lastNames.length)]);
+            user.setActive(random.nextInt(10) != 0);
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,78 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.ExportFormat;
+import com.aiproject.week3_tasks.model.UserProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserExportServiceTest {
+
+    @Mock
+    private UserProfileService userProfileService;
+
+    @InjectMocks
+    private UserExportService exportService;
+
+    private final StoredUsers stored = new StoredUsers();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userProfileService.insertNewUsers(anyList())).thenAnswer(invocation -> stored.insert(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Import a compressed binary export in chunks, skipping existing usernames")
+    void testImportBinary() throws IOException {
+        List<UserProfile> users = UserExportFormatTest.syntheticUsers(1_200);
+        stored.add(new UserProfile("user1", "taken@example.com", null, null));
+
+        int created = exportService.importBinary(new ByteArrayInputStream(
+                UserExportFormatTest.encode(ExportFormat.BINARY_GZIP, users)));
+
+        assertEquals(1_199, created);
+        assertEquals(1_200, stored.size());
+        verify(userProfileService, times(3)).insertNewUsers(anyList());
+        UserProfile imported = stored.get("user2");
+        assertEquals(users.get(2).getEmail(), imported.getEmail());
+        assertEquals(users.get(2).isActive(), imported.isActive());
+        assertEquals("taken@example.com", stored.get("user1").getEmail());
+    }
+
+    @Test
+    @DisplayName("Import an uncompressed binary export, skipping rows without a username")
+    void testImportBinarySkipsRowsWithoutUsername() throws IOException {
+        List<UserProfile> users = List.of(
+                new UserProfile("alice", "alice@example.com", "Alice", "Smith"),
+                new UserProfile(null, "nameless@example.com", null, null),
+                new UserProfile("alice", "alice@other.example.com", null, null),
+                new UserProfile("bob", null, "Bob", null));
+
+        int created = exportService.importBinary(new ByteArrayInputStream(
+                UserExportFormatTest.encode(ExportFormat.BINARY, users)));
+
+        assertEquals(2, created);
+        assertEquals(List.of("alice", "bob"), stored.usernames());
+        assertEquals("alice@example.com", stored.get("alice").getEmail());
+    }
+
+    @Test
+    @DisplayName("Reject a stream that is not a binary export")
+    void testImportBinaryRejectsOtherFormats() throws IOException {
+        byte[] csv = UserExportFormatTest.encode(ExportFormat.CSV, List.of(new UserProfile("alice", null, null, null)));
+        assertThrows(IOException.class, () -> exportService.importBinary(new ByteArrayInputStream(csv)));
+        verify(userProfileService, never()).insertNewUsers(anyList());
+    }
+}
@@ -0,0 +1,101 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.audit.AuditTrail;
+import com.aiproject.week3_tasks.model.UserCreationRequest;
+import com.aiproject.week3_tasks.model.UserCreationResult;
+import com.aiproject.week3_tasks.model.UserCreationResult.Status;
+import com.aiproject.week3_tasks.model.UserProfile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+class UserProfileServiceBatchTest {
+
+    @Mock
+    private AuditTrail auditTrail;
+
+    @Spy
+    @InjectMocks
+    private UserProfileService service;
+
+    private final Set<String> stored = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // A chunk containing "racer" fails as if a concurrent insert took one of its rows.
+        doAnswer(invocation -> {
+            List<UserProfile> users = invocation.getArgument(0);
+            if (users.stream().anyMatch(user -> user.getUsername().equals("racer"))) {
+                throw new DataIntegrityViolationException("duplicate key value violates unique constraint");
+            }
+            Map<String, String> skipped = new HashMap<>();
+            for (UserProfile user : users) {
+                if (!stored.add(user.getUsername())) {
+                    skipped.put(user.getUsername(), UserProfileService.USERNAME_EXISTS);
+                }
+            }
+            return skipped;
+        }).when(service).insertNewUsers(anyList());
+    }
+
+    @Test
+    @DisplayName("Report invalid rows and duplicates in and outside the batch per row")
+    void testMixedBatch() {
+        stored.add("existing");
+        List<UserCreationRequest> requests = List.of(
+                request("alice"),
+                new UserCreationRequest(" ", "blank@example.com", "Blank", "Name"),
+                request("existing"),
+                new UserCreationRequest("bob", "not-an-email", "Bob", "Jones"),
+                request("alice"),
+                request("carol"));
+
+        List<UserCreationResult> results = service.createUsers(requests);
+
+        assertEquals(List.of(Status.CREATED, Status.INVALID, Status.DUPLICATE, Status.INVALID, Status.DUPLICATE,
+                Status.CREATED), results.stream().map(UserCreationResult::status).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), results.stream().map(UserCreationResult::index).toList());
+        assertEquals(UserProfileService.USERNAME_EXISTS, results.get(2).message());
+        assertTrue(stored.containsAll(List.of("alice", "carol")));
+    }
+
+    @Test
+    @DisplayName("A failed chunk is reported as failed and later chunks are still inserted")
+    void testChunkFailureIsReportedPerRow() {
+        List<UserCreationRequest> requests = new ArrayList<>();
+        requests.add(request("racer"));
+        requests.add(new UserCreationRequest("", "bad@example.com", "Bad", "Name"));
+        for (int i = 0; i < 999; i++) {
+            requests.add(request("user" + i));
+        }
+
+        List<UserCreationResult> results = service.createUsers(requests);
+
+        assertEquals(requests.size(), results.size());
+        assertEquals(Status.INVALID, results.get(1).status());
+        // The first chunk holds "racer" and the next 499 valid rows.
+        List<UserCreationResult> failed = results.stream().filter(result -> result.status() == Status.FAILED).toList();
+        assertEquals(500, failed.size());
+        assertTrue(failed.stream().allMatch(result -> result.message().startsWith("Insert failed")));
+        assertEquals(Status.FAILED, results.get(0).status());
+        assertEquals(500, results.stream().filter(result -> result.status() == Status.CREATED).count());
+        assertEquals(Status.CREATED, results.get(results.size() - 1).status());
+        assertEquals(500, stored.size());
+    }
+
+    private static UserCreationRequest request(String username) {
+        return new UserCreationRequest(username, username + "@example.com", "First", "Last");
+    }
+}
@@ -0,0 +1,117 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.exception.InvalidUserException;
+import com.aiproject.week3_tasks.exception.UserNotFoundException;
+import com.aiproject.week3_tasks.model.UserProfile;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.aiproject.week3_tasks.service.UserProfileServiceConcurrencyTest$ThreadStatements")
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+class UserProfileServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    private UserProfileService service;
+
+    @Test
+    @DisplayName("Concurrent email and name updates on one user are all applied")
+    void testConcurrentUpdatesAreNotLost() throws Exception {
+        service.createUser("racer", "racer@example.com", "Race", "Condition");
+        long initialVersion = service.getUser("racer").getVersion();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    if (thread % 2 == 0) {
+                        service.updateEmail("racer", "racer" + thread + "-" + i + "@example.com");
+                    } else {
+                        service.updateName("racer", "First" + thread, "Last" + i);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        UserProfile user = service.getUser("racer");
+        assertEquals(initialVersion + THREADS * UPDATES_PER_THREAD, user.getVersion());
+        assertTrue(user.getEmail().endsWith("-" + (UPDATES_PER_THREAD - 1) + "@example.com"));
+        assertEquals("Last" + (UPDATES_PER_THREAD - 1), user.getLastName());
+    }
+
+    @Test
+    @DisplayName("Each single-user mutation is one SQL statement")
+    void testMutationsUseOneStatement() {
+        service.createUser("roundtrip", "roundtrip@example.com", "Round", "Trip");
+        ThreadStatements.STATEMENTS.get().clear();
+
+        UserProfile updated = service.updateEmail("roundtrip", "roundtrip@example.org");
+        service.updateName("roundtrip", "Single", "Statement");
+        service.deactivateUser("roundtrip");
+        service.reactivateUser("roundtrip");
+
+        assertEquals("roundtrip@example.org", updated.getEmail());
+        // Counted on this thread only: the change relay runs its own queries in the background.
+        // Each mutation's outbox insert, including its nextval('user_outbox_seq'), is part of
+        // the same update statement.
+        List<String> statements = ThreadStatements.STATEMENTS.get();
+        assertEquals(4, statements.size(), String.join("\n", statements));
+    }
+
+    @Test
+    @DisplayName("Mutating a missing user throws UserNotFoundException")
+    void testMutationOfMissingUser() {
+        assertThrows(UserNotFoundException.class, () -> service.updateEmail("ghost", "ghost@example.com"));
+        assertThrows(UserNotFoundException.class, () -> service.deactivateUser("ghost"));
+    }
+
+    @Test
+    @DisplayName("Duplicate usernames and case-insensitive duplicate emails are rejected by the constraints")
+    void testDuplicatesRejectedByConstraints() {
+        service.createUser("unique", "Unique@Example.com", "Uni", "Que");
+
+        InvalidUserException username = assertThrows(InvalidUserException.class,
+                () -> service.createUser("unique", "other@example.com", null, null));
+        InvalidUserException email = assertThrows(InvalidUserException.class,
+                () -> service.createUser("unique2", "unique@example.COM", null, null));
+
+        assertEquals("Username already exists", username.getMessage());
+        assertEquals("Email already exists", email.getMessage());
+    }
+
+    /**
+     * Records the SQL that Hibernate prepares, per thread.
+     */
+    public static class ThreadStatements implements StatementInspector {
+        static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.get().add(sql);
+            return sql;
+        }
+    }
+}
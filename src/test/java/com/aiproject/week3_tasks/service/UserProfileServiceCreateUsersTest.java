@@ -0,0 +1,94 @@
+package com.aiproject.week3_tasks.service;
+
+import com.aiproject.week3_tasks.model.UserCreationRequest;
+import com.aiproject.week3_tasks.model.UserCreationResult;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link UserProfileService#createUsers} against an embedded Postgres. Shares its context,
+ * and so its statement inspector, with {@link UserProfileServiceConcurrencyTest}.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.aiproject.week3_tasks.service.UserProfileServiceConcurrencyTest$ThreadStatements")
+@AutoConfigureEmbeddedDatabase(provider = AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY)
+class UserProfileServiceCreateUsersTest {
+
+    private static final int BULK_USERS = 600;
+
+    @Autowired
+    private UserProfileService service;
+    @Autowired
+    private UserProfileRepository repository;
+
+    @Test
+    @DisplayName("A batch skips stored and repeated usernames and emails and inserts the rest in chunks")
+    void testCreateUsersAgainstDatabase() {
+        service.createUser("stored", "Stored@batch.example", "Stored", "User");
+        List<UserCreationRequest> requests = new ArrayList<>(List.of(
+                new UserCreationRequest("stored", "fresh@batch.example", null, null),
+                new UserCreationRequest("taker", "STORED@batch.example", null, null),
+                new UserCreationRequest("twin", "twin@batch.example", "Twin", "One"),
+                new UserCreationRequest("twin", "twin2@batch.example", "Twin", "Two"),
+                new UserCreationRequest("copycat", "Twin@Batch.example", null, null)));
+        for (int i = 0; i < BULK_USERS; i++) {
+            requests.add(new UserCreationRequest("bulk" + i, "bulk" + i + "@batch.example", "Bulk", "User" + i));
+        }
+        // Pending rows past the first chunk of 500, so its email is found among committed rows.
+        requests.add(new UserCreationRequest("latecomer", "BULK0@batch.example", null, null));
+        UserProfileServiceConcurrencyTest.ThreadStatements.STATEMENTS.get().clear();
+
+        List<UserCreationResult> results = service.createUsers(requests);
+
+        assertResult(results.get(0), UserCreationResult.Status.DUPLICATE, UserProfileService.USERNAME_EXISTS);
+        assertResult(results.get(1), UserCreationResult.Status.DUPLICATE, UserProfileService.EMAIL_EXISTS);
+        assertResult(results.get(2), UserCreationResult.Status.CREATED, null);
+        assertResult(results.get(3), UserCreationResult.Status.DUPLICATE, UserProfileService.USERNAME_EXISTS);
+        assertResult(results.get(4), UserCreationResult.Status.DUPLICATE, UserProfileService.EMAIL_EXISTS);
+        for (int i = 0; i < BULK_USERS; i++) {
+            assertResult(results.get(5 + i), UserCreationResult.Status.CREATED, null);
+        }
+        assertResult(results.get(5 + BULK_USERS), UserCreationResult.Status.DUPLICATE, UserProfileService.EMAIL_EXISTS);
+
+        assertEquals("Stored@batch.example", service.getUser("stored").getEmail());
+        assertEquals("One", service.getUser("twin").getLastName());
+        assertTrue(repository.findByUsername("taker").isEmpty());
+        assertTrue(repository.findByUsername("copycat").isEmpty());
+        assertTrue(repository.findByUsername("latecomer").isEmpty());
+        List<String> bulk = new ArrayList<>();
+        for (int i = 0; i < BULK_USERS; i++) {
+            bulk.add("bulk" + i);
+        }
+        assertEquals(BULK_USERS, repository.findExistingUsernames(bulk).size());
+        Set<Long> ids = new HashSet<>();
+        for (UserProfile user : repository.findAll()) {
+            assertTrue(ids.add(user.getId()), "duplicate id " + user.getId());
+        }
+
+        // Ids are taken in blocks of 50 and rows inserted in JDBC batches of 50, so statements are
+        // prepared per block and per batch rather than per row.
+        List<String> statements = UserProfileServiceConcurrencyTest.ThreadStatements.STATEMENTS.get();
+        int created = BULK_USERS + 1;
+        assertPreparedPerBatch(statements, "nextval('user_profile_seq')", created);
+        assertPreparedPerBatch(statements, "insert into user_profile", created);
+    }
+
+    private static void assertPreparedPerBatch(List<String> statements, String fragment, int rows) {
+        long count = statements.stream().filter(sql -> sql.toLowerCase(Locale.ROOT).contains(fragment)).count();
+        assertTrue(count > 0 && count <= rows / 50 + 2, fragment + " prepared " + count + " times");
+    }
+
+    private static void assertResult(UserCreationResult result, UserCreationResult.Status status, String message) {
+        assertEquals(status, result.status(), result.username() + ": " + result.message());
+        assertEquals(message, result.message(), result.username());
+    }
+}
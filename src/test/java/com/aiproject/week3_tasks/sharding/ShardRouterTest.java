@@ -0,0 +1,101 @@
+package com.aiproject.week3_tasks.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+    private ShardRouter router;
+
+    @AfterEach
+    void tearDown() {
+        if (router != null) {
+            router.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Jump hash spreads users evenly across shards")
+    void testJumpHashDistribution() {
+        int[] counts = new int[4];
+        for (int i = 0; i < 40_000; i++) {
+            counts[ShardRouter.jumpHash(ShardRouter.hash("user" + i), 4)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 9_000 && count < 11_000, "Uneven shard size " + count);
+        }
+    }
+
+    @Test
+    @DisplayName("Adding a shard moves about 1/(N+1) of the users, all to the new shard")
+    void testAddingShardOnlyMovesToNewShard() {
+        int moved = 0;
+        for (int i = 0; i < 40_000; i++) {
+            long key = ShardRouter.hash("user" + i);
+            int before = ShardRouter.jumpHash(key, 3);
+            int after = ShardRouter.jumpHash(key, 4);
+            if (before != after) {
+                assertEquals(3, after);
+                moved++;
+            }
+        }
+        assertTrue(moved > 9_000 && moved < 11_000, "Moved " + moved);
+    }
+
+    @Test
+    @DisplayName("Scatter runs once per shard with that shard selected and returns results in shard order")
+    void testScatterSelectsShard() {
+        router = router(3);
+
+        assertEquals(List.of(0, 1, 2), router.scatter(shard -> ShardRouter.currentShard()));
+        assertEquals(List.of(1, 2, 2), router.gather(shard -> Collections.nCopies(shard, shard)));
+        assertNull(ShardRouter.currentShard());
+    }
+
+    @Test
+    @DisplayName("Partitioning groups items by owning shard and keeps their order")
+    void testPartition() {
+        router = router(3);
+        List<String> usernames = List.of("alice", "bob", "carol", "dave", "erin", "frank");
+
+        Map<Integer, List<String>> parts = router.partition(usernames, username -> username);
+
+        assertEquals(usernames.size(), parts.values().stream().mapToInt(List::size).sum());
+        parts.forEach((shard, part) -> part.forEach(username -> assertEquals(shard, router.shardOf(username))));
+        parts.values().forEach(part -> assertEquals(part, usernames.stream().filter(part::contains).toList()));
+    }
+
+    @Test
+    @DisplayName("Switching shards inside a transaction is refused")
+    void testNoShardSwitchInsideTransaction() {
+        router = router(2);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals(0, router.onShard(0, () -> 0));
+            assertThrows(IllegalStateException.class, () -> router.onShard(1, () -> 1));
+            assertEquals(1, router.onShardDetached(1, ShardRouter::currentShard));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    private static ShardRouter router(int shards) {
+        ShardProperties properties = new ShardProperties();
+        for (int i = 0; i < shards; i++) {
+            properties.getShards().add(new ShardProperties.Shard());
+        }
+        ShardRouter router = new ShardRouter();
+        ReflectionTestUtils.setField(router, "properties", properties);
+        router.start();
+        return router;
+    }
+}
@@ -0,0 +1,163 @@
+package com.aiproject.week3_tasks.sharding;
+
+import com.aiproject.week3_tasks.exception.InvalidUserException;
+import com.aiproject.week3_tasks.model.UserChange;
+import com.aiproject.week3_tasks.model.UserCreationRequest;
+import com.aiproject.week3_tasks.model.UserCreationResult;
+import com.aiproject.week3_tasks.model.UserProfile;
+import com.aiproject.week3_tasks.repository.UserProfileRepository;
+import com.aiproject.week3_tasks.service.UserChangeRelay;
+import com.aiproject.week3_tasks.service.UserProfileService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the service against three shards, each a database of one embedded Postgres.
+ */
+@SpringBootTest
+class ShardedUserProfileServiceTest {
+
+    private static final int SHARDS = 3;
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private UserProfileService service;
+    @Autowired
+    private UserProfileRepository repository;
+    @Autowired
+    private ShardRouter shards;
+    @Autowired
+    private ShardRebalancer rebalancer;
+    @Autowired
+    private UserChangeRelay relay;
+
+    @DynamicPropertySource
+    static void shardProperties(DynamicPropertyRegistry registry) throws Exception {
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            for (int i = 0; i < SHARDS; i++) {
+                statement.execute("CREATE DATABASE shard" + i);
+            }
+        }
+        for (int i = 0; i < SHARDS; i++) {
+            String url = postgres.getJdbcUrl("postgres", "shard" + i);
+            registry.add("users.sharding.shards[" + i + "].url", () -> url);
+            registry.add("users.sharding.shards[" + i + "].username", () -> "postgres");
+        }
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    @DisplayName("Users are stored on their owning shard and found by point lookups")
+    void testUsersAreRoutedToOwningShard() {
+        for (int i = 0; i < 30; i++) {
+            service.createUser("routed" + i, "routed" + i + "@example.com", "Routed", "User");
+        }
+
+        for (int i = 0; i < 30; i++) {
+            String username = "routed" + i;
+            int owner = shards.shardOf(username);
+            for (int shard = 0; shard < SHARDS; shard++) {
+                boolean stored = shards.onShard(shard, () -> repository.findByUsername(username)).isPresent();
+                assertEquals(shard == owner, stored, username + " on shard " + shard);
+            }
+            assertEquals(username + "@example.com", service.getUser(username).getEmail());
+        }
+    }
+
+    @Test
+    @DisplayName("Listing and counting gather users from every shard")
+    void testScatterGather() {
+        for (int i = 0; i < 20; i++) {
+            service.createUser("gathered" + i, "gathered" + i + "@gather.example", "Gathered", "User");
+        }
+        assertTrue(shards.scatter(shard -> repository.count()).stream().filter(count -> count > 0).count() > 1);
+
+        List<UserProfile> users = service.findUsersByDomain("gather.example");
+        Map<String, Long> domains = service.getUserCountByDomain();
+
+        assertEquals(20, users.size());
+        assertEquals(20L, domains.get("gather.example"));
+        assertTrue(service.listAllUsers().stream().map(UserProfile::getUsername).toList()
+                .containsAll(users.stream().map(UserProfile::getUsername).toList()));
+    }
+
+    @Test
+    @DisplayName("An email taken on another shard cannot be taken by an update")
+    void testUpdateEmailChecksOtherShards() {
+        String owner = "holder";
+        String other = "taker0";
+        for (int i = 1; shards.shardOf(other) == shards.shardOf(owner); i++) {
+            other = "taker" + i;
+        }
+        String taker = other;
+        service.createUser(owner, "held@shards.example", "Holder", "User");
+        service.createUser(taker, "taker@shards.example", "Taker", "User");
+
+        assertThrows(InvalidUserException.class, () -> service.updateEmail(taker, "HELD@shards.example"));
+        assertEquals("taker@shards.example", service.getUser(taker).getEmail());
+        assertEquals("Held@shards.example", service.updateEmail(owner, "Held@shards.example").getEmail());
+    }
+
+    @Test
+    @DisplayName("Ids are unique across shards, so every event reaches the change feed")
+    void testIdsAreUniqueAcrossShards() throws Exception {
+        long publishedBefore = relay.getPublishedSequence();
+        long failuresBefore = relay.getFailureCount();
+        // Several id blocks of 50 per shard, for users and their events alike.
+        List<UserCreationRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            requests.add(new UserCreationRequest("unique" + i, "unique" + i + "@ids.example", "Unique", "Id"));
+        }
+
+        List<UserCreationResult> results = service.createUsers(requests);
+
+        assertTrue(results.stream().allMatch(result -> result.status() == UserCreationResult.Status.CREATED),
+                () -> results.stream().filter(result -> result.status() != UserCreationResult.Status.CREATED)
+                        .findFirst().map(UserCreationResult::message).orElse(""));
+        relay.whenPublishedAfter(publishedBefore + requests.size() - 1).get(30, TimeUnit.SECONDS);
+        Set<String> published = new HashSet<>();
+        for (UserChange change : relay.changesSince(publishedBefore, 10_000).changes()) {
+            published.add(change.username());
+        }
+        assertTrue(published.containsAll(requests.stream().map(UserCreationRequest::username).toList()));
+        assertEquals(failuresBefore, relay.getFailureCount());
+
+        List<Long> ids = shards.gather(shard -> repository.findAll()).stream().map(UserProfile::getId).toList();
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+    @Test
+    @DisplayName("The rebalancer moves a misplaced user to its owning shard")
+    void testRebalanceMovesMisplacedUser() {
+        String username = "misplaced";
+        int owner = shards.shardOf(username);
+        int wrong = (owner + 1) % SHARDS;
+        shards.onShard(wrong, () -> repository.save(new UserProfile(username, "misplaced@example.com", "Mis", "Placed")));
+
+        assertTrue(rebalancer.rebalance() >= 1);
+
+        assertTrue(shards.onShard(owner, () -> repository.findByUsername(username)).isPresent());
+        assertTrue(shards.onShard(wrong, () -> repository.findByUsername(username)).isEmpty());
+        assertEquals("misplaced@example.com", service.getUser(username).getEmail());
+    }
+}